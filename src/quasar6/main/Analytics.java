@@ -0,0 +1,329 @@
+package quasar6.main;
+
+import java.util.Locale;
+import java.util.stream.LongStream;
+
+/**
+ * Utility class for measuring how hard a board is.
+ * The measures are Bechtel's Board Benchmark Value (3BV),
+ * the number of openings and the number of isolated numbers.
+ * An opening is a connected area of zero ranked tiles and
+ * an isolated number is a numbered tile which does not touch any opening,
+ * so 3BV is the least amount of clicks needed to clear the board.
+ * Seeded boards are measured with the mines of their seed code, see {@link BoardCode#ofSeed},
+ * without the safe first click of a played game, so no first click biases the measures.
+ */
+public final class Analytics {
+
+    private Analytics() {}
+
+    /**
+     * Difficulty measures of a single board.
+     *
+     * @param threeBV Bechtel's Board Benchmark Value
+     * @param openings the number of openings
+     * @param isolated the number of numbered tiles not touching an opening
+     */
+    public record Stats(int threeBV, int openings, int isolated) {
+
+        /**
+         * @param seconds the time it took to solve the board
+         * @return the 3BV solved per second, the time is at least one second
+         */
+        public double perSecond(long seconds)
+        {
+            return (double) threeBV / Math.max(1, seconds);
+        }
+    }
+
+    /**
+     * Histogram of the 3BV of many boards with the same parameters.
+     * Instances are filled by a single thread and merged afterwards.
+     */
+    public static final class Distribution {
+
+        private final long[] counts;
+        private long boards;
+        private long openings;
+        private long isolated;
+
+        private Distribution(int cells)
+        {
+            counts = new long[cells + 1];
+        }
+
+        private void add(int threeBV, int openings, int isolated)
+        {
+            ++counts[threeBV];
+            ++boards;
+            this.openings += openings;
+            this.isolated += isolated;
+        }
+
+        private void merge(Distribution other)
+        {
+            for (int i = 0; i < counts.length; i++)
+                counts[i] += other.counts[i];
+            boards += other.boards;
+            openings += other.openings;
+            isolated += other.isolated;
+        }
+
+        /** @return the number of measured boards */
+        public long boards()
+        {
+            return boards;
+        }
+
+        /**
+         * @param threeBV the 3BV to look up
+         * @return the number of boards with the given 3BV
+         */
+        public long count(int threeBV)
+        {
+            return threeBV < 0 || threeBV >= counts.length ? 0 : counts[threeBV];
+        }
+
+        /** @return the smallest measured 3BV or -1 if nothing was measured */
+        public int min()
+        {
+            for (int i = 0; i < counts.length; i++)
+                if (counts[i] != 0)
+                    return i;
+            return -1;
+        }
+
+        /** @return the largest measured 3BV or -1 if nothing was measured */
+        public int max()
+        {
+            for (int i = counts.length - 1; i >= 0; i--)
+                if (counts[i] != 0)
+                    return i;
+            return -1;
+        }
+
+        /** @return the average 3BV */
+        public double mean()
+        {
+            long sum = 0;
+            for (int i = 0; i < counts.length; i++)
+                sum += counts[i] * i;
+            return boards == 0 ? 0 : (double) sum / boards;
+        }
+
+        /** @return the average number of openings */
+        public double meanOpenings()
+        {
+            return boards == 0 ? 0 : (double) openings / boards;
+        }
+
+        /** @return the average number of isolated numbers */
+        public double meanIsolated()
+        {
+            return boards == 0 ? 0 : (double) isolated / boards;
+        }
+
+        /**
+         * @param p the percentile between 0 and 100
+         * @return the smallest 3BV which is not less than p percent of the boards
+         */
+        public int percentile(double p)
+        {
+            long target = (long) Math.ceil(boards * p / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= Math.max(1, target))
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(Locale.ROOT, "boards=%d 3BV min=%d p50=%d p90=%d max=%d mean=%.2f openings=%.2f isolated=%.2f",
+                    boards, min(), percentile(50), percentile(90), max(), mean(), meanOpenings(), meanIsolated());
+        }
+    }
+
+    /**
+     * Reusable working memory for measuring boards of at most a given size.
+     * One instance is used by one thread at a time.
+     */
+    private static final class Scratch {
+
+        private final long[] bits;
+        private final byte[] ranks;
+        private final int[] parent;
+        private final Distribution histogram;
+        private int openings;
+        private int isolated;
+
+        private Scratch(int cells)
+        {
+            bits = new long[(cells + 63) >>> 6];
+            ranks = new byte[cells];
+            parent = new int[cells];
+            histogram = new Distribution(cells);
+        }
+
+        /** Fills {@link #ranks} from the mines in {@link #bits}. */
+        private void rank(Topology topology)
+        {
+            int[] offsets = topology.offsets();
+            int[] neighbours = topology.neighbours();
+            int cells = offsets.length - 1;
+            for (int idx = 0; idx < cells; idx++)
+                ranks[idx] = (bits[idx >>> 6] & 1L << idx) != 0 ? (byte) 9 : 0;
+            for (int idx = 0; idx < cells; idx++)
+                if (ranks[idx] == 9)
+                    for (int k = offsets[idx]; k < offsets[idx + 1]; k++)
+                        if (ranks[neighbours[k]] != 9)
+                            ++ranks[neighbours[k]];
+        }
+
+        /**
+         * Labels the openings in one linear scan with union-find
+         * and counts the isolated numbers of {@link #ranks}.
+         * Every zero tile is joined with its zero neighbours scanned before it.
+         */
+        private void measure(Topology topology)
+        {
+            int[] offsets = topology.offsets();
+            int[] neighbours = topology.neighbours();
+            int cells = offsets.length - 1;
+            int zeros = 0;
+            int unions = 0;
+            for (int idx = 0; idx < cells; idx++) {
+                if (ranks[idx] != 0)
+                    continue;
+                parent[idx] = idx;
+                ++zeros;
+                for (int k = offsets[idx]; k < offsets[idx + 1]; k++) {
+                    int n = neighbours[k];
+                    if (n < idx && ranks[n] == 0 && union(idx, n))
+                        ++unions;
+                }
+            }
+            openings = zeros - unions;
+            isolated = 0;
+            for (int idx = 0; idx < cells; idx++) {
+                int rank = ranks[idx];
+                if (rank == 0 || rank == 9)
+                    continue;
+                boolean touches = false;
+                for (int k = offsets[idx]; k < offsets[idx + 1] && !touches; k++)
+                    touches = ranks[neighbours[k]] == 0;
+                if (!touches)
+                    ++isolated;
+            }
+        }
+
+        private int find(int idx)
+        {
+            while (parent[idx] != idx) {
+                parent[idx] = parent[parent[idx]];
+                idx = parent[idx];
+            }
+            return idx;
+        }
+
+        private boolean union(int a, int b)
+        {
+            int ra = find(a);
+            int rb = find(b);
+            if (ra == rb)
+                return false;
+            if (ra < rb)
+                parent[rb] = ra;
+            else
+                parent[ra] = rb;
+            return true;
+        }
+    }
+
+    /**
+     * Measures the board currently held by {@link Field}.
+     *
+     * @return the measures of the current field
+     */
+    public static Stats ofField()
+    {
+        int rows = Field.getSizeX();
+        int cols = Field.getSizeY();
+        var scratch = new Scratch(rows * cols);
+        for (int idx = 0; idx < rows * cols; idx++)
+            scratch.ranks[idx] = (byte) Field.getRank(idx);
+        scratch.measure(Field.getTopology());
+        return new Stats(scratch.openings + scratch.isolated, scratch.openings, scratch.isolated);
+    }
+
+    /**
+     * Measures a seeded board without generating it into {@link Field}.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @param seed the seed of the board
+     * @param kind the neighbourhood of the board
+     * @return the measures of the board
+     */
+    public static Stats of(int rows, int cols, int mines, long seed, Topology.Kind kind)
+    {
+        var topology = Topology.of(kind, rows, cols);
+        var scratch = new Scratch(rows * cols);
+        Field.placeMines(rows, cols, mines, seed, scratch.bits);
+        scratch.rank(topology);
+        scratch.measure(topology);
+        return new Stats(scratch.openings + scratch.isolated, scratch.openings, scratch.isolated);
+    }
+
+    /**
+     * Measures the boards of the seeds {@code firstSeed .. firstSeed + boards - 1} in parallel.
+     * Every worker thread reuses its own working memory, so nothing is allocated per board
+     * apart from the random generator of the mine placement.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @param firstSeed the seed of the first board
+     * @param boards the amount of boards to measure
+     * @param kind the neighbourhood of the boards
+     * @return the 3BV histogram of the boards
+     */
+    public static Distribution distribution(int rows, int cols, int mines, long firstSeed, long boards, Topology.Kind kind)
+    {
+        if (rows < 1 || cols < 1 || mines < 0 || mines > rows * cols || boards < 0)
+            throw new IllegalArgumentException("Invalid board parameters!");
+        var topology = Topology.of(kind, rows, cols);
+        int cells = rows * cols;
+        return LongStream.range(firstSeed, firstSeed + boards).parallel().collect(
+                () -> new Scratch(cells),
+                (scratch, seed) -> {
+                    Field.placeMines(rows, cols, mines, seed, scratch.bits);
+                    scratch.rank(topology);
+                    scratch.measure(topology);
+                    scratch.histogram.add(scratch.openings + scratch.isolated, scratch.openings, scratch.isolated);
+                },
+                (a, b) -> a.histogram.merge(b.histogram)).histogram;
+    }
+
+    /**
+     * Prints the 3BV distribution of every preset.
+     *
+     * @param args optionally the amount of boards per preset, 1000000 by default
+     */
+    public static void main(String[] args)
+    {
+        long boards = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int[][] presets = {{9, 9, 10}, {16, 16, 40}, {16, 30, 99}};
+        String[] names = {Field.BEGINNER, Field.INTERMEDIATE, Field.EXPERT};
+        for (int i = 0; i < presets.length; i++) {
+            long start = System.nanoTime();
+            var dist = distribution(presets[i][0], presets[i][1], presets[i][2], 0, boards, Topology.Kind.SQUARE);
+            double secs = (System.nanoTime() - start) / 1e9;
+            System.out.printf(Locale.ROOT, "%-12s %s (%.0f boards/s)%n", names[i], dist, boards / secs);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package quasar6.main;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.stream.IntStream;
+
+/**
+ * Mine layout of a square neighbourhood board stored as one bitset per row.
+ * The ranks are computed 64 tiles at a time: the eight neighbour rows are
+ * shifted into place and summed with bit-sliced full adders into four count bits.
+ * Large boards are split into stripes of rows which run on the common ForkJoinPool.
+ */
+public final class Bitboard {
+
+    /** Rows per parallel task. */
+    private static final int STRIPE = 256;
+
+    /** Below this amount of tiles the ranks are computed on the calling thread. */
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+
+    /** {@code SPREAD[b]} has byte {@code k} set to 1 if bit {@code k} of {@code b} is set. */
+    private static final long[] SPREAD = new long[256];
+
+    /** Writes eight ranks with one store. */
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    static {
+        for (int b = 0; b < 256; b++)
+            for (int k = 0; k < 8; k++)
+                if ((b >>> k & 1) != 0)
+                    SPREAD[b] |= 1L << (k << 3);
+    }
+
+    private final int rows;
+    private final int cols;
+    private final int words;
+
+    /** Row {@code x} is {@code mines[x * words] .. mines[x * words + words - 1]}, bits past cols are zero. */
+    private final long[] mines;
+
+    /**
+     * Creates an empty board.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @throws IllegalArgumentException if the size is not positive or too big
+     */
+    public Bitboard(int rows, int cols)
+    {
+        if (rows < 1 || cols < 1 || (long) rows * cols > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Provided size too big or too small!");
+        this.rows = rows;
+        this.cols = cols;
+        words = (cols + 63) >>> 6;
+        mines = new long[rows * words];
+    }
+
+    /**
+     * Copies a flat mine bitset, like the one of {@link Field#placeMines(int, int, int, long, long[])}.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param bits the mines, tile {@code (x, y)} is bit {@code x * cols + y}
+     * @return the board holding the same mines
+     */
+    public static Bitboard fromLayout(int rows, int cols, long[] bits)
+    {
+        var board = new Bitboard(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            long from = (long) i * cols;
+            for (int w = 0; w < board.words; w++) {
+                long start = from + ((long) w << 6);
+                int idx = (int) (start >>> 6);
+                int shift = (int) (start & 63);
+                long word = bits[idx] >>> shift;
+                if (shift != 0 && idx + 1 < bits.length)
+                    word |= bits[idx + 1] << -shift;
+                int valid = Math.min(64, cols - (w << 6));
+                if (valid < 64)
+                    word &= -1L >>> -valid;
+                board.mines[i * board.words + w] = word;
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Places a mine.
+     *
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     */
+    public void setMine(int x, int y)
+    {
+        mines[x * words + (y >>> 6)] |= 1L << y;
+    }
+
+    /**
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     * @return {@code true} if the tile is a mine
+     */
+    public boolean isMine(int x, int y)
+    {
+        return (mines[x * words + (y >>> 6)] & 1L << y) != 0;
+    }
+
+    /** @return the amount of mines */
+    public int getMineCount()
+    {
+        int count = 0;
+        for (long word : mines)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /** @return the amount of rows */
+    public int getRows()
+    {
+        return rows;
+    }
+
+    /** @return the amount of columns */
+    public int getCols()
+    {
+        return cols;
+    }
+
+    /**
+     * Computes the rank of every tile, mines are ranked 9 like in {@link Tile}.
+     *
+     * @return the flat ranks, tile {@code (x, y)} is at {@code x * cols + y}
+     */
+    public byte[] ranks()
+    {
+        byte[] out = new byte[rows * cols];
+        ranks(out, (long) rows * cols >= PARALLEL_THRESHOLD);
+        return out;
+    }
+
+    /**
+     * Computes the rank of every tile into the given array.
+     *
+     * @param out the flat ranks, at least {@code rows * cols} long
+     * @param parallel {@code true} to split the rows into stripes running in parallel
+     */
+    public void ranks(byte[] out, boolean parallel)
+    {
+        int stripes = (rows + STRIPE - 1) / STRIPE;
+        IntStream range = IntStream.range(0, stripes);
+        (parallel ? range.parallel() : range).forEach(s -> {
+            for (int i = s * STRIPE; i < Math.min(rows, (s + 1) * STRIPE); i++)
+                rankRow(i, out);
+        });
+    }
+
+    /**
+     * Ranks one row. For every word the eight neighbour words are added with
+     * full adders into four count bits, which are then spread into bytes eight at a time.
+     *
+     * @param i the row
+     * @param out the flat ranks
+     */
+    private void rankRow(int i, byte[] out)
+    {
+        int mid = i * words;
+        int up = i > 0 ? mid - words : -1;
+        int down = i < rows - 1 ? mid + words : -1;
+        for (int w = 0; w < words; w++) {
+            long n = word(up, w);
+            long nw = west(up, w);
+            long ne = east(up, w);
+            long we = west(mid, w);
+            long ea = east(mid, w);
+            long s = word(down, w);
+            long sw = west(down, w);
+            long se = east(down, w);
+
+            long sumA = nw ^ n ^ ne;
+            long carryA = nw & n | ne & (nw ^ n);
+            long sumB = we ^ ea ^ sw;
+            long carryB = we & ea | sw & (we ^ ea);
+            long sumC = s ^ se;
+            long carryC = s & se;
+
+            long bit0 = sumA ^ sumB ^ sumC;
+            long carryD = sumA & sumB | sumC & (sumA ^ sumB);
+            long sumE = carryA ^ carryB ^ carryC;
+            long carryE = carryA & carryB | carryC & (carryA ^ carryB);
+            long bit1 = sumE ^ carryD;
+            long carryF = sumE & carryD;
+            long bit2 = carryE ^ carryF;
+            long bit3 = carryE & carryF;
+
+            long mine = mines[mid + w];
+            int base = i * cols + (w << 6);
+            int valid = Math.min(64, cols - (w << 6));
+            int b = 0;
+            for (; b + 8 <= valid; b += 8) {
+                long spread = SPREAD[(int) (bit0 >>> b) & 0xFF] | SPREAD[(int) (bit1 >>> b) & 0xFF] << 1
+                        | SPREAD[(int) (bit2 >>> b) & 0xFF] << 2 | SPREAD[(int) (bit3 >>> b) & 0xFF] << 3;
+                long mined = SPREAD[(int) (mine >>> b) & 0xFF];
+                LONGS.set(out, base + b, spread & ~(mined * 0xFF) | mined * 9);
+            }
+            for (; b < valid; b++)
+                out[base + b] = (mine >>> b & 1) != 0 ? 9 : (byte) ((bit0 >>> b & 1)
+                        | (bit1 >>> b & 1) << 1 | (bit2 >>> b & 1) << 2 | (bit3 >>> b & 1) << 3);
+        }
+    }
+
+    private long word(int row, int w)
+    {
+        return row < 0 ? 0 : mines[row + w];
+    }
+
+    /** @return the word whose bit {@code y} is the tile at {@code y - 1} */
+    private long west(int row, int w)
+    {
+        if (row < 0)
+            return 0;
+        long word = mines[row + w] << 1;
+        return w > 0 ? word | mines[row + w - 1] >>> 63 : word;
+    }
+
+    /** @return the word whose bit {@code y} is the tile at {@code y + 1} */
+    private long east(int row, int w)
+    {
+        if (row < 0)
+            return 0;
+        long word = mines[row + w] >>> 1;
+        return w < words - 1 ? word | mines[row + w + 1] << 63 : word;
+    }
+}
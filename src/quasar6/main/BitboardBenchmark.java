@@ -0,0 +1,74 @@
+package quasar6.main;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Compares the rank computation of {@link Bitboard} with the scalar loop
+ * used by {@link Field} and {@link Board} on one large random board.
+ */
+public final class BitboardBenchmark {
+
+    private BitboardBenchmark() {}
+
+    /**
+     * The scalar reference: every mine increments its non-mine neighbours one by one.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param bits the mines, tile {@code (x, y)} is bit {@code x * cols + y}
+     * @param out the flat ranks
+     */
+    static void scalarRanks(int rows, int cols, long[] bits, byte[] out)
+    {
+        for (int idx = 0; idx < rows * cols; idx++)
+            out[idx] = (bits[idx >>> 6] & 1L << idx) != 0 ? (byte) 9 : 0;
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (out[i * cols + j] == 9)
+                    for (int k = Math.max(0, i - 1); k < Math.min(rows, i + 2); k++)
+                        for (int l = Math.max(0, j - 1); l < Math.min(cols, j + 2); l++)
+                            if (out[k * cols + l] != 9)
+                                ++out[k * cols + l];
+    }
+
+    /**
+     * @param args optionally the rows, the columns, the mine density and the rounds,
+     *             by default 4096 4096 0.2 5
+     */
+    public static void main(String[] args)
+    {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int cols = args.length > 1 ? Integer.parseInt(args[1]) : 4096;
+        double density = args.length > 2 ? Double.parseDouble(args[2]) : 0.2;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        int cells = rows * cols;
+        long[] bits = new long[(cells + 63) >>> 6];
+        Field.placeMines(rows, cols, (int) (cells * density), 42, bits);
+
+        byte[] expected = new byte[cells];
+        byte[] actual = new byte[cells];
+        Bitboard board = Bitboard.fromLayout(rows, cols, bits);
+        for (int round = 0; round < rounds; round++) {
+            long scalar = time(() -> scalarRanks(rows, cols, bits, expected));
+            long sequential = time(() -> board.ranks(actual, false));
+            if (!Arrays.equals(expected, actual))
+                throw new IllegalStateException("Bitboard ranks differ from the scalar ranks!");
+            Arrays.fill(actual, (byte) 0);
+            long parallel = time(() -> board.ranks(actual, true));
+            if (!Arrays.equals(expected, actual))
+                throw new IllegalStateException("Parallel bitboard ranks differ from the scalar ranks!");
+            System.out.printf(Locale.ROOT, "%dx%d round %d: scalar %.1f ms (%.0f Mcells/s), bitboard %.1f ms (%.0f Mcells/s), "
+                            + "parallel %.1f ms (%.0f Mcells/s)%n", rows, cols, round + 1,
+                    scalar / 1e6, cells * 1e3 / scalar, sequential / 1e6, cells * 1e3 / sequential,
+                    parallel / 1e6, cells * 1e3 / parallel);
+        }
+    }
+
+    private static long time(Runnable task)
+    {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+}
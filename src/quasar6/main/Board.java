@@ -0,0 +1,281 @@
+package quasar6.main;
+
+/**
+ * A single game of minesweeper which does not depend on the global {@link Field}.
+ * Tiles are stored in flat arrays, tile {@code (x, y)} is at index {@code x * cols + y},
+ * so many boards can be played side by side, e.g. by bots.
+ * The rules are the same as in {@link Field}: a seeded board gets its mines on the first reveal,
+ * which keeps that tile and its neighbours free, while a board of a code or a mine layout is played
+ * as it is, like a loaded field.
+ */
+public final class Board {
+
+    private static final byte HIDDEN = 0;
+    private static final byte FLAGGED = 1;
+    private static final byte REVEALED = 2;
+
+    /** State of the game. */
+    public enum State { PLAYING, WON, LOST }
+
+    private final int rows;
+    private final int cols;
+    private final int mines;
+    private final Topology topology;
+
+    /** The seed of the mines, placed on the first reveal of a seeded board. */
+    private final long seed;
+
+    /** {@code false} until the mines of a seeded board are placed. */
+    private boolean armed;
+
+    /** Ranks of the tiles, 9 means mine like in {@link Tile}. */
+    private final byte[] ranks;
+    private final byte[] tiles;
+
+    /** Stack of the flood fill, reused between reveals. */
+    private final int[] stack;
+    private final BoardView view = new View();
+    private int revealed;
+    private State state = State.PLAYING;
+
+    /**
+     * Creates the board of a code.
+     *
+     * @param code the board to play
+     */
+    public Board(BoardCode code)
+    {
+        this(code.getRows(), code.getCols(), code.mines(), code.getTopology());
+    }
+
+    /**
+     * Creates a board from a mine bitset.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param bits the mines, tile {@code (x, y)} is bit {@code x * cols + y}
+     * @param kind the neighbourhood of the board
+     */
+    public Board(int rows, int cols, long[] bits, Topology.Kind kind)
+    {
+        this(count(rows * cols, bits), 0, Topology.of(kind, rows, cols));
+        setMines(bits);
+    }
+
+    /**
+     * Creates a seeded board. Its mines are placed on the first reveal like on a generated {@link Field},
+     * so the same seed and the same first reveal always give the same board.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @param seed the seed of the mine placement
+     * @param kind the neighbourhood of the board
+     * @throws IllegalArgumentException if the size or the amount of mines is out of range
+     */
+    public Board(int rows, int cols, int mines, long seed, Topology.Kind kind)
+    {
+        this(mines, seed, checked(rows, cols, mines, kind));
+    }
+
+    private Board(int mines, long seed, Topology topology)
+    {
+        this.topology = topology;
+        this.mines = mines;
+        this.seed = seed;
+        rows = topology.getRows();
+        cols = topology.getCols();
+        ranks = new byte[rows * cols];
+        tiles = new byte[rows * cols];
+        stack = new int[rows * cols];
+    }
+
+    private static Topology checked(int rows, int cols, int mines, Topology.Kind kind)
+    {
+        Field.checkParameters(rows, cols, mines);
+        return Topology.of(kind, rows, cols);
+    }
+
+    private static int count(int cells, long[] bits)
+    {
+        int count = 0;
+        for (int idx = 0; idx < cells; idx++)
+            if ((bits[idx >>> 6] & 1L << idx) != 0)
+                ++count;
+        return count;
+    }
+
+    /**
+     * Places the mines and ranks the tiles.
+     *
+     * @param bits the mines, tile {@code (x, y)} is bit {@code x * cols + y}
+     */
+    private void setMines(long[] bits)
+    {
+        armed = true;
+        for (int idx = 0; idx < rows * cols; idx++)
+            if ((bits[idx >>> 6] & 1L << idx) != 0)
+                ranks[idx] = 9;
+        int[] offsets = topology.offsets();
+        int[] neighbours = topology.neighbours();
+        for (int idx = 0; idx < ranks.length; idx++)
+            if (ranks[idx] == 9)
+                for (int k = offsets[idx]; k < offsets[idx + 1]; k++)
+                    if (ranks[neighbours[k]] != 9)
+                        ++ranks[neighbours[k]];
+    }
+
+    /**
+     * Reveals a tile. Revealing a zero ranked tile reveals its opening.
+     * Flagged and revealed tiles are left alone.
+     *
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     * @return {@code true} if the tile was revealed
+     */
+    public boolean reveal(int x, int y)
+    {
+        int idx = index(x, y);
+        if (state != State.PLAYING || tiles[idx] != HIDDEN)
+            return false;
+        if (!armed) {
+            long[] bits = new long[(rows * cols + 63) >>> 6];
+            Field.placeMines(mines, seed, topology, idx, bits, null);
+            setMines(bits);
+        }
+        if (ranks[idx] == 9) {
+            tiles[idx] = REVEALED;
+            state = State.LOST;
+            return true;
+        }
+        int[] offsets = topology.offsets();
+        int[] neighbours = topology.neighbours();
+        int top = 0;
+        tiles[idx] = REVEALED;
+        ++revealed;
+        stack[top++] = idx;
+        while (top > 0) {
+            int cur = stack[--top];
+            if (ranks[cur] != 0)
+                continue;
+            for (int k = offsets[cur]; k < offsets[cur + 1]; k++) {
+                int n = neighbours[k];
+                if (tiles[n] != REVEALED) {
+                    tiles[n] = REVEALED;
+                    ++revealed;
+                    stack[top++] = n;
+                }
+            }
+        }
+        if (revealed == rows * cols - mines)
+            state = State.WON;
+        return true;
+    }
+
+    /**
+     * Toggles the flag of a hidden tile.
+     *
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     * @return {@code true} if the tile changed
+     */
+    public boolean toggleFlag(int x, int y)
+    {
+        int idx = index(x, y);
+        if (state != State.PLAYING || tiles[idx] == REVEALED)
+            return false;
+        tiles[idx] = tiles[idx] == FLAGGED ? HIDDEN : FLAGGED;
+        return true;
+    }
+
+    /**
+     * Applies a move of a player.
+     *
+     * @param move the move to apply
+     * @return {@code true} if the board changed
+     */
+    public boolean apply(Player.Move move)
+    {
+        return move.flag() ? toggleFlag(move.x(), move.y()) : reveal(move.x(), move.y());
+    }
+
+    /** @return the state of the game */
+    public State getState()
+    {
+        return state;
+    }
+
+    /**
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     * @return {@code true} if the tile is a mine, always {@code false} before the mines of a seeded board are placed
+     */
+    public boolean isMine(int x, int y)
+    {
+        return ranks[index(x, y)] == 9;
+    }
+
+    /**
+     * The view only exposes what a player may see,
+     * it can not be cast back to the board.
+     *
+     * @return the player's view of this board
+     */
+    public BoardView view()
+    {
+        return view;
+    }
+
+    private int index(int x, int y)
+    {
+        if (x < 0 || y < 0 || x >= rows || y >= cols)
+            throw new IndexOutOfBoundsException("Tile " + x + "_" + y + " is not on the board!");
+        return x * cols + y;
+    }
+
+    private final class View implements BoardView {
+
+        @Override
+        public int getRows()
+        {
+            return rows;
+        }
+
+        @Override
+        public int getCols()
+        {
+            return cols;
+        }
+
+        @Override
+        public int getMineCount()
+        {
+            return mines;
+        }
+
+        @Override
+        public Topology getTopology()
+        {
+            return topology;
+        }
+
+        @Override
+        public boolean isHidden(int x, int y)
+        {
+            return tiles[index(x, y)] != REVEALED;
+        }
+
+        @Override
+        public boolean isFlagged(int x, int y)
+        {
+            return tiles[index(x, y)] == FLAGGED;
+        }
+
+        @Override
+        public int getRank(int x, int y)
+        {
+            int idx = index(x, y);
+            return tiles[idx] == REVEALED ? ranks[idx] : -1;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package quasar6.main;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Short, URL-safe code of a board.
+ * A code holds the dimensions, the mine count and either the seed of the board
+ * or its mine layout packed into bits and deflated when that is shorter.
+ * Codes are immutable and can be rebuilt into {@link Field} with {@link Field#load(BoardCode)}.
+ *
+ * The binary form is a header byte ({@code version << 4 | topology << 2 | kind}),
+ * the rows, columns and mines as unsigned varints and the payload.
+ * It is encoded as Base64 URL without padding.
+ */
+public final class BoardCode {
+
+    private static final int VERSION = 1;
+    private static final int SEED = 0;
+    private static final int RAW = 1;
+    private static final int DEFLATED = 2;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final int rows;
+    private final int cols;
+    private final int mines;
+    private final long seed;
+    private final Topology.Kind topology;
+
+    /** The mine layout or {@code null} if the board is described by its seed. */
+    private final long[] layout;
+
+    private BoardCode(int rows, int cols, int mines, long seed, Topology.Kind topology, long[] layout)
+    {
+        this.rows = rows;
+        this.cols = cols;
+        this.mines = mines;
+        this.seed = seed;
+        this.topology = topology;
+        this.layout = layout;
+    }
+
+    /**
+     * Describes a seeded board with the square neighbourhood.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @param seed the seed of the board
+     * @return the code of the board
+     * @throws IllegalArgumentException if the parameters are not a valid board
+     */
+    public static BoardCode ofSeed(int rows, int cols, int mines, long seed)
+    {
+        return ofSeed(rows, cols, mines, seed, Topology.Kind.SQUARE);
+    }
+
+    /**
+     * Describes a seeded board.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @param seed the seed of the board
+     * @param topology the neighbourhood of the board
+     * @return the code of the board
+     * @throws IllegalArgumentException if the parameters are not a valid board
+     */
+    public static BoardCode ofSeed(int rows, int cols, int mines, long seed, Topology.Kind topology)
+    {
+        Field.checkParameters(rows, cols, mines);
+        if (topology == null)
+            throw new IllegalArgumentException("Topology cannot be null!");
+        return new BoardCode(rows, cols, mines, seed, topology, null);
+    }
+
+    /**
+     * Describes a board with the square neighbourhood by its mines.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param layout the mine bitset, it is copied
+     * @return the code of the board
+     * @throws IllegalArgumentException if the parameters are not a valid board
+     * @see #ofLayout(int, int, long[], Topology.Kind)
+     */
+    public static BoardCode ofLayout(int rows, int cols, long[] layout)
+    {
+        return ofLayout(rows, cols, layout, Topology.Kind.SQUARE);
+    }
+
+    /**
+     * Describes a board by its mines. Tile {@code (x, y)} is bit {@code x * cols + y}.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param layout the mine bitset, it is copied
+     * @param topology the neighbourhood of the board
+     * @return the code of the board
+     * @throws IllegalArgumentException if the parameters are not a valid board
+     */
+    public static BoardCode ofLayout(int rows, int cols, long[] layout, Topology.Kind topology)
+    {
+        int words = (rows * cols + 63) >>> 6;
+        if (topology == null || rows < 1 || cols < 1 || layout.length < words)
+            throw new IllegalArgumentException("Layout does not match the size!");
+        long[] copy = Arrays.copyOf(layout, words);
+        if ((rows * cols & 63) != 0)
+            copy[words - 1] &= -1L >>> -(rows * cols);
+        int mines = 0;
+        for (long word : copy)
+            mines += Long.bitCount(word);
+        Field.checkParameters(rows, cols, mines);
+        return new BoardCode(rows, cols, mines, 0, topology, copy);
+    }
+
+    /**
+     * The daily board is the same for everyone on a given day and difficulty.
+     *
+     * @param date the day of the challenge
+     * @param difficulty the difficulty, see {@link Field#BEGINNER}
+     * @return the code of the daily board
+     * @throws IllegalArgumentException if the difficulty is not correct
+     */
+    public static BoardCode daily(LocalDate date, String difficulty)
+    {
+        int[] preset = Field.preset(difficulty);
+        long z = date.toEpochDay() * 0x9E3779B97F4A7C15L + difficulty.hashCode();
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return ofSeed(preset[0], preset[1], preset[2], z ^ z >>> 31);
+    }
+
+    /**
+     * Parses a code.
+     *
+     * @param code the text of the code
+     * @return the decoded board
+     * @throws IllegalArgumentException if the code is malformed or describes an invalid board
+     */
+    public static BoardCode decode(String code)
+    {
+        if (code == null)
+            throw new IllegalArgumentException("Code cannot be null!");
+        ByteBuffer in = ByteBuffer.wrap(DECODER.decode(code.strip()));
+        try {
+            int header = in.get() & 0xFF;
+            if (header >>> 4 != VERSION)
+                throw new IllegalArgumentException("Unknown board code version!");
+            int rows = readVarInt(in);
+            int cols = readVarInt(in);
+            int mines = readVarInt(in);
+            Field.checkParameters(rows, cols, mines);
+            int cells = rows * cols;
+            Topology.Kind topology = Topology.Kind.values()[header >>> 2 & 3];
+            switch (header & 3) {
+                case SEED -> {
+                    long seed = in.getLong();
+                    if (in.hasRemaining())
+                        throw new IllegalArgumentException("Trailing bytes in board code!");
+                    return new BoardCode(rows, cols, mines, seed, topology, null);
+                }
+                case RAW, DEFLATED -> {
+                    byte[] packed = new byte[(cells + 7) >>> 3];
+                    if ((header & 3) == RAW) {
+                        in.get(packed);
+                        if (in.hasRemaining())
+                            throw new IllegalArgumentException("Trailing bytes in board code!");
+                    } else
+                        inflate(in, packed);
+                    long[] layout = new long[(cells + 63) >>> 6];
+                    ByteBuffer.wrap(Arrays.copyOf(packed, layout.length * 8))
+                            .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(layout);
+                    BoardCode board = ofLayout(rows, cols, layout, topology);
+                    if (board.mines != mines)
+                        throw new IllegalArgumentException("Mine count does not match the layout!");
+                    return board;
+                }
+                default -> throw new IllegalArgumentException("Unknown board code kind!");
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Board code is truncated!", e);
+        }
+    }
+
+    /**
+     * Checks a code without keeping the decoded board.
+     *
+     * @param code the text of the code
+     * @return {@code true} if the code describes a valid board
+     */
+    public static boolean isValid(String code)
+    {
+        try {
+            decode(code);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the URL-safe text of this code
+     */
+    public String encode()
+    {
+        var out = new ByteArrayOutputStream(16);
+        if (layout == null) {
+            writeHeader(out, SEED);
+            for (int shift = 56; shift >= 0; shift -= 8)
+                out.write((int) (seed >>> shift));
+            return ENCODER.encodeToString(out.toByteArray());
+        }
+        byte[] packed = new byte[(rows * cols + 7) >>> 3];
+        for (int i = 0; i < packed.length; i++)
+            packed[i] = (byte) (layout[i >>> 3] >>> ((i & 7) << 3));
+        var deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        deflater.setInput(packed);
+        deflater.finish();
+        byte[] deflated = new byte[packed.length + 64];
+        int length = deflater.deflate(deflated);
+        boolean shorter = deflater.finished() && length < packed.length;
+        deflater.end();
+        writeHeader(out, shorter ? DEFLATED : RAW);
+        if (shorter)
+            out.write(deflated, 0, length);
+        else
+            out.write(packed, 0, packed.length);
+        return ENCODER.encodeToString(out.toByteArray());
+    }
+
+    /**
+     * Expands this code into the mine bitset.
+     * Seeded codes are expanded with {@link Field#placeMines(int, int, int, long, long[])}.
+     *
+     * @return a new bitset of the mines, tile {@code (x, y)} is bit {@code x * cols + y}
+     */
+    public long[] mines()
+    {
+        if (layout != null)
+            return layout.clone();
+        long[] bits = new long[(rows * cols + 63) >>> 6];
+        Field.placeMines(rows, cols, mines, seed, bits);
+        return bits;
+    }
+
+    /** @return the amount of rows */
+    public int getRows()
+    {
+        return rows;
+    }
+
+    /** @return the amount of columns */
+    public int getCols()
+    {
+        return cols;
+    }
+
+    /** @return the amount of mines */
+    public int getMineCount()
+    {
+        return mines;
+    }
+
+    /** @return the neighbourhood of the board */
+    public Topology.Kind getTopology()
+    {
+        return topology;
+    }
+
+    /** @return {@code true} if this code holds a seed instead of a layout */
+    public boolean isSeeded()
+    {
+        return layout == null;
+    }
+
+    /** @return the seed of the board, only meaningful if {@link #isSeeded()} */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return encode();
+    }
+
+    private void writeHeader(ByteArrayOutputStream out, int kind)
+    {
+        out.write(VERSION << 4 | topology.ordinal() << 2 | kind);
+        writeVarInt(out, rows);
+        writeVarInt(out, cols);
+        writeVarInt(out, mines);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value)
+    {
+        while ((value & ~0x7F) != 0) {
+            out.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer in)
+    {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("Malformed number in board code!");
+    }
+
+    private static void inflate(ByteBuffer in, byte[] packed)
+    {
+        var inflater = new Inflater(true);
+        try {
+            inflater.setInput(in);
+            int length = inflater.inflate(packed);
+            if (length != packed.length || !inflater.finished() || inflater.getRemaining() != 0)
+                throw new IllegalArgumentException("Corrupt board layout!");
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt board layout!", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
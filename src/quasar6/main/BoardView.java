@@ -0,0 +1,41 @@
+package quasar6.main;
+
+/**
+ * Read-only view of a board as a player sees it.
+ * The rank of a tile is only visible after it has been revealed.
+ */
+public interface BoardView {
+
+    /** @return the amount of rows */
+    int getRows();
+
+    /** @return the amount of columns */
+    int getCols();
+
+    /** @return the amount of mines on the board */
+    int getMineCount();
+
+    /** @return the neighbourhood of the tiles */
+    Topology getTopology();
+
+    /**
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     * @return {@code true} if the tile has not been revealed yet
+     */
+    boolean isHidden(int x, int y);
+
+    /**
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     * @return {@code true} if the tile is hidden and marked as a mine
+     */
+    boolean isFlagged(int x, int y);
+
+    /**
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     * @return the rank of a revealed tile or -1 if the tile is hidden
+     */
+    int getRank(int x, int y);
+}
@@ -1,6 +1,16 @@
 package quasar6.main;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 /**
  * Utility class for the game field.
@@ -12,11 +22,225 @@ public final class Field {
     public static final String BEGINNER = "Beginner";
     public static final String INTERMEDIATE = "Intermediate";
     public static final String EXPERT = "Expert";
+
+    /** Longest side of a board, the game archive stores the sides in 16 bits. */
+    public static final int MAX_SIDE = Short.MAX_VALUE;
+
+    /** Most tiles of a board. */
+    public static final int MAX_CELLS = 1 << 26;
+
+    /** Boards with at least this many tiles use {@link Engine#PACKED}. */
+    public static final int PACKED_THRESHOLD = 1 << 16;
+
+    /**
+     * How the tiles of a field are stored.
+     * The engine is picked from the size of the board, see {@link #engineFor(int, int)}.
+     */
+    public enum Engine {
+        /**
+         * A {@link Tile} per tile and a precomputed neighbour table.
+         * The mines are ranked while they are placed.
+         */
+        PLAIN("Plain"),
+        /**
+         * A byte per tile and neighbours computed on the fly. The mines are placed into a bitset,
+         * in parallel stripes on dense boards, and ranked by {@link Bitboard} in parallel stripes,
+         * or tile by tile in parallel for the other neighbourhoods.
+         */
+        PACKED("Packed");
+
+        private final String label;
+
+        Engine(String label)
+        {
+            this.label = label;
+        }
+
+        /** @return the name shown to the player */
+        public String getLabel()
+        {
+            return label;
+        }
+    }
+
+    ////////////////////////////////Packed tile bits start////////////////////////////////
+    private static final int RANK = 0x0F;
+    private static final int REVEALED = 0x10;
+    private static final int MARK_SHIFT = 5;
+    ////////////////////////////////Packed tile bits end//////////////////////////////////
+
+    /** Tiles per task when a packed field is ranked tile by tile. */
+    private static final int STRIPE = 1 << 14;
+
+    /** Packed boards with a mine per this many tiles or more place their mines in parallel, see {@link #spreads(long, int, int)}. */
+    private static final int SPREAD_DENSITY = 16;
+
+    /** Top bits of the keys counted to find the last mine of {@link #spreadMines(int, long, int, long[], long[])}. */
+    private static final int SPREAD_BUCKET_BITS = 10;
+
     private static int sizeX;
     private static int sizeY;
-    private static Tile[][] field;
+
+    /** The tiles of a {@link Engine#PLAIN} field, {@code null} otherwise. */
+    private static Tile[] field;
+
+    /** The tiles of a {@link Engine#PACKED} field, {@code null} otherwise. */
+    private static byte[] cells;
+
+    private static Engine engine;
     private static final Random rand = new Random();
 
+    /** Neighbourhood of the next generated field. */
+    private static Topology.Kind kind = Topology.Kind.SQUARE;
+
+    /** Neighbourhood of the current field. */
+    private static Topology topology;
+
+    /** Queue of {@link #revealTiles(int, int)}, sized for the current field. */
+    private static int[] stack;
+
+    /** Neighbours of the tile being revealed, see {@link Topology#neighbours(int, int[])}. */
+    private static final int[] around = new int[8];
+
+    /**
+     * The seed the current field was generated from.
+     * The same seed with the same dimensions always yields the same mines.
+     */
+    private static long seed;
+
+    /**
+     * {@code false} if the mines of the current field do not follow from the seed alone,
+     * because it was loaded from a mine layout or its first reveal was kept safe.
+     */
+    private static boolean seeded;
+
+    /**
+     * {@code false} until the mines of a generated field are placed.
+     * A generated field gets its mines on the first reveal, see {@link #arm(int)}.
+     */
+    private static boolean armed;
+
+    /** {@code true} once a tile of the current field was marked. */
+    private static boolean marked;
+
+    /** The amount of mines on the current field. */
+    private static int mineCount;
+
+    /** The amount of tiles marked with {@link Tile#FLAG}. */
+    private static int flagCount;
+
+    /** The amount of revealed tiles. */
+    private static int revealedCount;
+
+    private static final List<FieldListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Builds the boards of {@link #pregenerate(int, int, int)} off the EDT. */
+    private static final ExecutorService background = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Field pregenerate");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** The board being built for the next {@link #customGenerate(int, int, int)}, or {@code null}. */
+    private static CompletableFuture<Prepared> next;
+
+    /** Runs of every sample of {@link #measure(Engine, Topology.Kind)}, the median is taken. */
+    private static final int CALIBRATION_RUNS = 5;
+
+    /**
+     * Measured costs of the engines per neighbourhood, see {@link #calibrate()}.
+     * The measurement starts on its own daemon thread when the class is first used,
+     * so it neither runs on the EDT nor holds up the boards of {@link #pregenerate(int, int, int)}.
+     */
+    private static final class Costs {
+
+        private static final CompletableFuture<Map<Engine, double[][]>> MEASURED = CompletableFuture.supplyAsync(() -> {
+            Map<Engine, double[][]> costs = new EnumMap<>(Engine.class);
+            for (Engine engine : Engine.values()) {
+                double[][] kinds = new double[Topology.Kind.values().length][];
+                for (Topology.Kind kind : Topology.Kind.values())
+                    kinds[kind.ordinal()] = measure(engine, kind);
+                costs.put(engine, kinds);
+            }
+            return costs;
+        }, r -> {
+            Thread t = new Thread(r, "Field calibrate");
+            t.setDaemon(true);
+            t.start();
+        });
+    }
+
+    /**
+     * A board built without touching the current field, its mines are placed on the first reveal.
+     * It is made on any thread and becomes the current field with {@link #install(Prepared)}.
+     * Either the tiles or the cells are set, depending on the engine.
+     */
+    private record Prepared(int rows, int cols, int mines, long seed, Topology topology, Tile[] tiles, byte[] cells) {
+
+        private boolean matches(int rows, int cols, int mines, Topology.Kind kind)
+        {
+            return this.rows == rows && this.cols == cols && this.mines == mines && topology.getKind() == kind;
+        }
+    }
+
+    /**
+     * Expected cost of a board, shown before a custom game is started.
+     *
+     * @param engine the engine the board would use
+     * @param bytes the memory of the field
+     * @param revealBytes the memory taken for a while on the first reveal by the mine placement
+     *                    and the cascade handed to the listeners, not counting what the listeners copy
+     * @param millis the time of the first reveal, placing and ranking the mines and opening every free tile
+     */
+    public record Estimate(Engine engine, long bytes, long revealBytes, double millis) {}
+
+    /** Tile of a packed field, a view of {@link #cells} made by {@link #getTileAt(int, int)}. */
+    private static final class PackedTile extends Tile {
+
+        private final int idx;
+
+        private PackedTile(int idx)
+        {
+            this.idx = idx;
+        }
+
+        @Override
+        public int getRank()
+        {
+            return cells[idx] & RANK;
+        }
+
+        @Override
+        public void setRank(int rank)
+        {
+            cells[idx] = (byte) (cells[idx] & ~RANK | rank);
+        }
+
+        @Override
+        public boolean isHidden()
+        {
+            return (cells[idx] & REVEALED) == 0;
+        }
+
+        @Override
+        public void setHidden(boolean hidden)
+        {
+            cells[idx] = (byte) (hidden ? cells[idx] & ~REVEALED : cells[idx] | REVEALED);
+        }
+
+        @Override
+        public int getMark()
+        {
+            return cells[idx] >>> MARK_SHIFT & 3;
+        }
+
+        @Override
+        public void setMark(int mark)
+        {
+            cells[idx] = (byte) (cells[idx] & ~(3 << MARK_SHIFT) | mark << MARK_SHIFT);
+        }
+    }
+
     /**
      * Debug method for printing the current field to the console.
      */
@@ -26,58 +250,193 @@ public final class Field {
         System.out.println();
         for (int i = 0; i < sizeX; i++) {
             for (int j = 0; j < sizeY; j++) {
-                if (field[i][j].isMine())
+                if (isMine(i * sizeY + j))
                     System.out.print("M ");
                 else
-                    System.out.print(field[i][j].getRank() + " ");
+                    System.out.print(getRank(i * sizeY + j) + " ");
             }
             System.out.println();
         }
         System.out.println();
     }
 
+    ////////////////////////////////Tile access start////////////////////////////////
+    /**
+     * @param idx  The flat index of the tile, {@code x * sizeY + y}
+     * @return  The rank of the tile, 9 for a mine
+     */
+    public static int getRank(int idx)
+    {
+        return cells != null ? cells[idx] & RANK : field[idx].getRank();
+    }
+
+    /**
+     * @param idx  The flat index of the tile, {@code x * sizeY + y}
+     * @return  {@code true} if the tile is a mine
+     */
+    public static boolean isMine(int idx)
+    {
+        return getRank(idx) == 9;
+    }
+
+    /**
+     * @param idx  The flat index of the tile, {@code x * sizeY + y}
+     * @return  {@code true} if the tile is hidden
+     */
+    public static boolean isHidden(int idx)
+    {
+        return cells != null ? (cells[idx] & REVEALED) == 0 : field[idx].isHidden();
+    }
+
+    /**
+     * @param idx  The flat index of the tile, {@code x * sizeY + y}
+     * @return  The mark of the tile, one of {@link Tile#NONE}, {@link Tile#FLAG} or {@link Tile#QMARK}
+     */
+    public static int getMark(int idx)
+    {
+        return cells != null ? cells[idx] >>> MARK_SHIFT & 3 : field[idx].getMark();
+    }
+
+    /** Reveals a tile and removes its mark. */
+    private static void revealAt(int idx)
+    {
+        if (cells != null)
+            cells[idx] = (byte) (cells[idx] & RANK | REVEALED);
+        else {
+            field[idx].setHidden(false);
+            field[idx].setMark(Tile.NONE);
+        }
+    }
+    ////////////////////////////////Tile access end//////////////////////////////////
+
     /**
      * Calculates the ranks of tiles based on the rules of minesweeper.
+     *
+     * @param tiles  The tiles with their mines already set
+     * @param topology  The neighbourhood of the tiles
      */
-    private static void calculateTiles()
-    {
-        for (int i = 0; i < sizeX; i++)
-            for (int j = 0; j < sizeY; j++)
-                if (field[i][j].isMine()) {
-                    var ij = new AbstractMap.SimpleImmutableEntry<>(i, j);
-                    for (int k = Math.max(0, i - 1); k < Math.min(sizeX, i + 2); k++)
-                        for (int l = Math.max(0, j - 1); l < Math.min(sizeY, j + 2); l++) {
-                            var kl = new AbstractMap.SimpleImmutableEntry<>(k, l);
-                            if (!ij.equals(kl) && !field[k][l].isMine())
-                                field[k][l].setRank(field[k][l].getRank() + 1);
-                        }
+    private static void calculateTiles(Tile[] tiles, Topology topology)
+    {
+        int[] offsets = topology.offsets();
+        int[] neighbours = topology.neighbours();
+        for (int idx = 0; idx < tiles.length; idx++)
+            if (tiles[idx].isMine())
+                for (int k = offsets[idx]; k < offsets[idx + 1]; k++) {
+                    Tile tile = tiles[neighbours[k]];
+                    if (!tile.isMine())
+                        tile.setRank(tile.getRank() + 1);
                 }
     }
 
+    /**
+     * Ranks a mine bitset into packed cells, clearing their other bits.
+     * Square boards are ranked by {@link Bitboard}, the others tile by tile. Both run in parallel stripes.
+     *
+     * @param bits  The mines, tile {@code (x, y)} is bit {@code x * cols + y}
+     * @param topology  The size and neighbourhood of the board
+     * @param out  The cells to write the ranks to
+     */
+    private static void rankPacked(long[] bits, Topology topology, byte[] out)
+    {
+        if (topology.getKind() == Topology.Kind.SQUARE) {
+            Bitboard.fromLayout(topology.getRows(), topology.getCols(), bits).ranks(out, true);
+            return;
+        }
+        IntStream.range(0, (out.length + STRIPE - 1) / STRIPE).parallel().forEach(s -> {
+            int[] near = new int[8];
+            for (int idx = s * STRIPE; idx < Math.min(out.length, (s + 1) * STRIPE); idx++) {
+                if ((bits[idx >>> 6] & 1L << idx) != 0) {
+                    out[idx] = 9;
+                    continue;
+                }
+                int rank = 0;
+                for (int k = topology.neighbours(idx, near) - 1; k >= 0; k--)
+                    rank += (int) (bits[near[k] >>> 6] >>> near[k]) & 1;
+                out[idx] = (byte) rank;
+            }
+        });
+    }
+
     /**
      * Reveals all the tiles neighbouring the one given in the parameters
      * according to the rules of minesweeper.
+     * Every revealed tile is queued exactly once, so the queue ends up holding the cascade.
+     * The marks of the revealed tiles are removed.
+     * The first reveal of a generated field places the mines around it first, see {@link #arm(int)}.
      *
      * @param x  The x coordinate of the tile
      * @param y  The y coordinate of the tile
+     * @return  The flat indices ({@code x * sizeY + y}) of the tiles revealed by this call
      */
-    public static void revealTiles(int x, int y)
+    public static int[] revealTiles(int x, int y)
     {
-        if (field[x][y].getRank() > 0)
-            field[x][y].setHidden(false);
-        else {
-            var xy = new AbstractMap.SimpleImmutableEntry<>(x, y);
-            field[x][y].setHidden(false);
-            for (int i = Math.max(0, x - 1); i < Math.min(sizeX, x + 2); i++)
-                for (int j = Math.max(0, y - 1); j < Math.min(sizeY, y + 2); j++) {
-                    var ij = new AbstractMap.SimpleImmutableEntry<>(i, j);
-                    if (!ij.equals(xy) && field[i][j].isHidden()) {
-                        field[i][j].setHidden(false);
-                        if (field[i][j].getRank() == 0)
-                            revealTiles(i, j);
+        if (!armed)
+            arm(x * sizeY + y);
+        int start = x * sizeY + y;
+        if (isHidden(start))
+            ++revealedCount;
+        int top = flood(start, field, cells, topology, stack, around);
+        revealedCount += top - 1;
+        // Only a marked field can have marks on the revealed tiles.
+        for (int k = 0; marked && k < top; k++) {
+            if (getMark(stack[k]) == Tile.FLAG)
+                --flagCount;
+            revealAt(stack[k]);
+        }
+        int[] cascade = Arrays.copyOf(stack, top);
+        for (FieldListener listener : listeners)
+            listener.tilesRevealed(cascade);
+        return cascade;
+    }
+
+    /**
+     * The flood fill of {@link #revealTiles(int, int)} on the given tiles or cells,
+     * so {@link #measure(Engine, Topology.Kind)} can time it on a sample board.
+     * Every revealed tile is queued exactly once, their marks are left alone.
+     *
+     * @param start  The flat index of the tile to reveal
+     * @param tiles  The tiles of a plain board, or {@code null}
+     * @param cells  The cells of a packed board, or {@code null}
+     * @param topology  The neighbourhood of the board
+     * @param queue  The queue, at least the size of the board
+     * @param near  Scratch for the neighbours of a tile
+     * @return  The amount of queued tiles
+     */
+    private static int flood(int start, Tile[] tiles, byte[] cells, Topology topology, int[] queue, int[] near)
+    {
+        int head = 0;
+        int top = 0;
+        queue[top++] = start;
+        if (cells != null) {
+            cells[start] |= REVEALED;
+            while (head < top) {
+                int idx = queue[head++];
+                if ((cells[idx] & RANK) > 0)
+                    continue;
+                for (int k = topology.neighbours(idx, near) - 1; k >= 0; k--) {
+                    int n = near[k];
+                    if ((cells[n] & REVEALED) == 0) {
+                        cells[n] |= REVEALED;
+                        queue[top++] = n;
                     }
                 }
+            }
+            return top;
+        }
+        tiles[start].setHidden(false);
+        while (head < top) {
+            int idx = queue[head++];
+            if (tiles[idx].getRank() > 0)
+                continue;
+            for (int k = topology.neighbours(idx, near) - 1; k >= 0; k--) {
+                Tile tile = tiles[near[k]];
+                if (tile.isHidden()) {
+                    tile.setHidden(false);
+                    queue[top++] = near[k];
+                }
+            }
         }
+        return top;
     }
 
     /**
@@ -85,20 +444,7 @@ public final class Field {
      */
     public static boolean isWinningState()
     {
-        int allTiles = sizeX * sizeY;
-        int mineCount;
-        if (sizeY == 9)
-            mineCount = 10;
-        else if (sizeY == 16)
-            mineCount = 40;
-        else
-            mineCount = 99;
-        int revealedTiles = 0;
-        for (int i = 0; i < sizeX; i++)
-            for (int j = 0; j < sizeY; j++)
-                if (!field[i][j].isHidden())
-                    ++revealedTiles;
-        return revealedTiles == allTiles - mineCount;
+        return revealedCount == sizeX * sizeY - mineCount;
     }
 
     /**
@@ -110,64 +456,632 @@ public final class Field {
      * @throws IllegalArgumentException if the difficulty is not correct.
      */
     public static void generate(String difficulty)
+    {
+        int[] preset = preset(difficulty);
+        customGenerate(preset[0], preset[1], preset[2]);
+    }
+
+    /**
+     * Starts building the board of the next {@link #generate(String)} call on a background thread.
+     *
+     * @param difficulty  The difficulty to generate. Valid values: Beginner, Intermediate, Expert
+     * @throws IllegalArgumentException if the difficulty is not correct.
+     * @see #pregenerate(int, int, int)
+     */
+    public static void pregenerate(String difficulty)
+    {
+        int[] preset = preset(difficulty);
+        pregenerate(preset[0], preset[1], preset[2]);
+    }
+
+    /**
+     * Starts building the board of the next {@link #customGenerate(int, int, int)} call on a background thread,
+     * so a new game can start without waiting for the generation. It can be called while
+     * the current field is still being played, the current field is not touched.
+     *
+     * @param rows the amount of rows to generate
+     * @param cols the amount of columns to generate
+     * @param mines the amount of mines to place on the field
+     * @throws IllegalArgumentException if the size or the amount of mines is out of range
+     */
+    public static void pregenerate(int rows, int cols, int mines)
+    {
+        checkParameters(rows, cols, mines);
+        Topology.Kind nextKind = kind;
+        long nextSeed = rand.nextLong();
+        next = CompletableFuture.supplyAsync(() -> prepare(rows, cols, mines, nextSeed, nextKind), background);
+    }
+
+    /**
+     * @param difficulty  The difficulty. Valid values: Beginner, Intermediate, Expert
+     * @return  The rows, columns and mines of the difficulty in this order
+     * @throws IllegalArgumentException if the difficulty is not correct.
+     */
+    static int[] preset(String difficulty)
     {
         if (difficulty == null || !BEGINNER.equals(difficulty) && !INTERMEDIATE.equals(difficulty) && !EXPERT.equals(difficulty))
             throw new IllegalArgumentException("Difficulty cannot be null and must be one of the following: Beginner, Intermediate, Expert");
         if (BEGINNER.equals(difficulty))
-            customGenerate(9, 9, 10);
+            return new int[]{9, 9, 10};
         else if (INTERMEDIATE.equals(difficulty))
-            customGenerate(16, 16, 40);
+            return new int[]{16, 16, 40};
         else
-            customGenerate(16, 30, 99);
+            return new int[]{16, 30, 99};
     }
 
     /**
-     * This method initializes the field, the sizeX and sizeY variables.
-     * After that, it calls {@link #setMinesOnRandomPos(int)} and {@link #calculateTiles()}.
+     * Validates the parameters of a board.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @throws IllegalArgumentException if a side is not between 1 and {@link #MAX_SIDE},
+     * if there are more than {@link #MAX_CELLS} tiles, if there are no mines or no tile is left free of mines
+     */
+    static void checkParameters(int rows, int cols, int mines)
+    {
+        if (rows < 1 || cols < 1 || rows > MAX_SIDE || cols > MAX_SIDE || (long) rows * cols > MAX_CELLS)
+            throw new IllegalArgumentException("Provided size too big or too small!");
+        // A board of mines only would have nothing to reveal, and its first reveal could not be kept safe.
+        if (mines >= rows * cols || mines < 1)
+            throw new IllegalArgumentException("Place at least one mine and leave at least one tile free!");
+    }
+
+    /**
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @return the engine of a board of this size
+     */
+    public static Engine engineFor(int rows, int cols)
+    {
+        return (long) rows * cols < PACKED_THRESHOLD ? Engine.PLAIN : Engine.PACKED;
+    }
+
+    /**
+     * Estimates the memory of a board and the time of its first reveal.
+     * The time covers placing and ranking the mines and a first reveal opening every free tile,
+     * which is the worst case. It is scaled from sample boards of the same neighbourhood and of each way
+     * of placing the mines, generated and revealed several times by {@link #calibrate()}. Until it completes the time is not known.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @param kind the neighbourhood
+     * @return the estimate, its time is {@link Double#NaN} until {@link #calibrate()} completes
+     * @throws IllegalArgumentException if the size or the amount of mines is out of range
+     */
+    public static Estimate estimate(int rows, int cols, int mines, Topology.Kind kind)
+    {
+        checkParameters(rows, cols, mines);
+        Engine engine = engineFor(rows, cols);
+        long tiles = (long) rows * cols;
+        int degree = kind == Topology.Kind.HEXAGONAL ? 6 : 8;
+        // Tile objects, their references, the neighbour table and the reveal queue, or a byte and the queue.
+        long bytes = engine == Engine.PLAIN ? tiles * (24 + 4 + 4 + 4 * degree + 4) : tiles * 5;
+        Map<Engine, double[][]> measured = Costs.MEASURED.getNow(null);
+        double[] cost = measured == null ? null : measured.get(engine)[kind.ordinal()];
+        long bitset = (tiles + 63) / 64 * 8;
+        // The first reveal is always kept safe.
+        boolean spread = spreads(tiles, mines, 0);
+        // The shuffled free tiles unless the mines are spread, the blocked bitset of the placement,
+        // the bitboard of the ranking, and the copy of a cascade opening every free tile.
+        long reveal = (spread ? 4 : 8) * (tiles - mines) + 2 * bitset;
+        double place = cost == null ? Double.NaN : spread ? tiles * cost[3] : tiles * cost[0] + mines * cost[1];
+        double nanos = cost == null ? Double.NaN : place + (tiles - mines) * cost[2];
+        return new Estimate(engine, bytes + bitset, reveal, nanos / 1e6);
+    }
+
+    /**
+     * Starts measuring the costs behind the time of {@link #estimate(int, int, int, Topology.Kind)} off the calling thread.
+     * It is measured once, every call returns the same future.
+     *
+     * @return completes when the estimates know their time
+     */
+    public static CompletableFuture<?> calibrate()
+    {
+        return Costs.MEASURED;
+    }
+
+    /**
+     * Times an engine on a sparse and a denser board of the same size and neighbourhood,
+     * and the first reveal of the sparse one. The packed engine is also timed on a dense board,
+     * whose mines are placed by {@link #spreadMines(int, long, int, long[], long[])}.
+     * Every time is the median of {@link #CALIBRATION_RUNS} runs after a warm up.
+     *
+     * @param engine the engine to time
+     * @param kind the neighbourhood to time
+     * @return the nanoseconds per tile and per mine of the mine placement, per revealed tile,
+     *         and per tile of a spread placement, {@link Double#NaN} for the plain engine
+     */
+    private static double[] measure(Engine engine, Topology.Kind kind)
+    {
+        int side = engine == Engine.PLAIN ? 128 : 1024;
+        int tiles = side * side;
+        int[] mines = engine == Engine.PLAIN ? new int[]{tiles / 20, tiles / 2} : new int[]{tiles / 64, tiles / 20, tiles / 2};
+        Topology sample = Topology.of(kind, side, side);
+        int[] queue = new int[tiles];
+        int[] near = new int[8];
+        double[][] nanos = new double[mines.length + 1][CALIBRATION_RUNS];
+        int revealed = 0;
+        // The runs before the first one only warm up the code, the small plain sample needs more of them.
+        for (int run = engine == Engine.PLAIN ? -10 : -1; run < CALIBRATION_RUNS; run++)
+            for (int d = 0; d < mines.length; d++) {
+                long start = System.nanoTime();
+                long[] bits = new long[(tiles + 63) >>> 6];
+                Tile[] plain = null;
+                byte[] packed = null;
+                if (engine == Engine.PLAIN)
+                    placeMines(mines[d], run, sample, tiles / 2, bits, plain = newTiles(tiles));
+                else {
+                    placeMines(mines[d], run, sample, tiles / 2, bits, null);
+                    rankPacked(bits, sample, packed = new byte[tiles]);
+                }
+                long placed = System.nanoTime();
+                if (d == 0)
+                    revealed = flood(tiles / 2, plain, packed, sample, queue, near);
+                if (run < 0)
+                    continue;
+                nanos[d][run] = placed - start;
+                if (d == 0)
+                    nanos[mines.length][run] = (double) (System.nanoTime() - placed) / revealed;
+            }
+        for (double[] runs : nanos)
+            Arrays.sort(runs);
+        double sparseNanos = nanos[0][CALIBRATION_RUNS / 2];
+        double denseNanos = nanos[1][CALIBRATION_RUNS / 2];
+        double perMine = (denseNanos - sparseNanos) / (mines[1] - mines[0]);
+        double perTile = (sparseNanos - perMine * mines[0]) / tiles;
+        if (perMine < 0 || perTile < 0) {
+            // The samples were too noisy to split, so the slower one is charged to the tiles.
+            perMine = 0;
+            perTile = Math.max(sparseNanos, denseNanos) / tiles;
+        }
+        double perSpread = engine == Engine.PLAIN ? Double.NaN : nanos[2][CALIBRATION_RUNS / 2] / tiles;
+        return new double[]{perTile, perMine, nanos[mines.length][CALIBRATION_RUNS / 2], perSpread};
+    }
+
+    /**
+     * This method initializes the field with a freshly drawn seed.
+     * If {@link #pregenerate(int, int, int)} was called with the same parameters and neighbourhood,
+     * its board is used instead of building one.
      *
      * @param rows the amount of rows to generate
      * @param cols the amount of columns to generate
      * @param mines the amount of mines to place on the field
-     * @throws IllegalArgumentException if rows > 24 or cols > 30 or if there are more mines than Tiles
+     * @throws IllegalArgumentException if the size or the amount of mines is out of range
+     * @see #customGenerate(int, int, int, long)
      */
     public static void customGenerate(int rows, int cols, int mines)
     {
-        if (mines > rows * cols || mines < 10)
-            throw new IllegalArgumentException("Can't place more mines than Tiles!");
-        if (rows > 24 || cols > 30 || rows < 9 || cols < 9)
-            throw new IllegalArgumentException("Provided size too big or too small!");
+        CompletableFuture<Prepared> pending = next;
+        next = null;
+        if (pending != null) {
+            Prepared prepared = pending.join();
+            if (prepared.matches(rows, cols, mines, kind)) {
+                install(prepared);
+                return;
+            }
+        }
+        customGenerate(rows, cols, mines, rand.nextLong());
+    }
+
+    /**
+     * This method initializes the field, the sizeX and sizeY variables.
+     * The mines are placed on the first reveal by {@link #arm(int)}.
+     *
+     * @param rows the amount of rows to generate
+     * @param cols the amount of columns to generate
+     * @param mines the amount of mines to place on the field
+     * @param seed the seed of the mine placement
+     * @throws IllegalArgumentException if the size or the amount of mines is out of range
+     */
+    public static void customGenerate(int rows, int cols, int mines, long seed)
+    {
+        checkParameters(rows, cols, mines);
+        install(prepare(rows, cols, mines, seed, kind));
+    }
+
+    /**
+     * Builds a seeded board without touching the current field, so it is safe on any thread.
+     * Only the tiles and the neighbourhood are built, the mines wait for the first reveal.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @param seed the seed of the mine placement
+     * @param kind the neighbourhood
+     * @return the board without mines
+     */
+    private static Prepared prepare(int rows, int cols, int mines, long seed, Topology.Kind kind)
+    {
+        Topology topology = Topology.of(kind, rows, cols);
+        if (engineFor(rows, cols) == Engine.PLAIN)
+            return new Prepared(rows, cols, mines, seed, topology, newTiles(rows * cols), null);
+        return new Prepared(rows, cols, mines, seed, topology, null, new byte[rows * cols]);
+    }
+
+    /**
+     * Makes a prepared board the current field.
+     *
+     * @param prepared the board to play
+     */
+    private static void install(Prepared prepared)
+    {
+        setSize(prepared.rows(), prepared.cols(), prepared.mines());
+        topology = prepared.topology();
+        field = prepared.tiles();
+        cells = prepared.cells();
+        seed = prepared.seed();
+        seeded = true;
+        armed = false;
+        fireGenerated();
+    }
+
+    /**
+     * Places the mines of a generated field.
+     * The tile of the first reveal and its neighbours are kept free of mines,
+     * so the first click never loses and always opens an area.
+     *
+     * @param safe  The flat index of the first revealed tile, or -1 for the plain layout of the seed
+     * @see #placeMines(int, long, Topology, int, long[], Tile[])
+     */
+    private static void arm(int safe)
+    {
+        long[] bits = new long[(sizeX * sizeY + 63) >>> 6];
+        placeMines(mineCount, seed, topology, safe, bits, field);
+        if (cells != null)
+            setMines(bits);
+        seeded = safe < 0;
+        armed = true;
+    }
+
+    /**
+     * Ranks a mine bitset into the packed cells, keeping the marks placed so far.
+     *
+     * @param bits  The mines, tile {@code (x, y)} is bit {@code x * sizeY + y}
+     */
+    private static void setMines(long[] bits)
+    {
+        if (!marked) {
+            rankPacked(bits, topology, cells);
+            return;
+        }
+        byte[] ranks = new byte[cells.length];
+        rankPacked(bits, topology, ranks);
+        for (int idx = 0; idx < cells.length; idx++)
+            cells[idx] = (byte) (cells[idx] & ~RANK | ranks[idx]);
+    }
+
+    /**
+     * Rebuilds the board of a code. The mines are taken from {@link BoardCode#mines()}, which
+     * draws them with {@link #placeMines(int, int, int, long, long[])} for a seed code,
+     * so the first reveal of a loaded board is not kept safe.
+     *
+     * @param code the board to load
+     */
+    public static void load(BoardCode code)
+    {
+        kind = code.getTopology();
+        setSize(code.getRows(), code.getCols(), code.getMineCount());
+        topology = Topology.of(kind, sizeX, sizeY);
+        seed = code.getSeed();
+        seeded = code.isSeeded();
+        armed = true;
+        if (engine == Engine.PLAIN) {
+            cells = null;
+            field = newTiles(sizeX * sizeY);
+            setMines(field, code.mines());
+            calculateTiles(field, topology);
+        } else {
+            field = null;
+            cells = new byte[sizeX * sizeY];
+            setMines(code.mines());
+        }
+        fireGenerated();
+    }
+
+    private static void fireGenerated()
+    {
+        for (FieldListener listener : listeners)
+            listener.fieldGenerated();
+    }
+
+    /**
+     * Registers a listener for the changes of the field.
+     *
+     * @param listener the listener to add
+     */
+    public static void addListener(FieldListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener to remove
+     */
+    public static void removeListener(FieldListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Marks a hidden tile. Revealed tiles can not be marked.
+     *
+     * @param x  The x coordinate of the tile
+     * @param y  The y coordinate of the tile
+     * @param mark  The mark, one of {@link Tile#NONE}, {@link Tile#FLAG} or {@link Tile#QMARK}
+     */
+    public static void setMark(int x, int y, int mark)
+    {
+        Tile tile = getTileAt(x, y);
+        if (!tile.isHidden() || tile.getMark() == mark)
+            return;
+        if (tile.getMark() == Tile.FLAG)
+            --flagCount;
+        if (mark == Tile.FLAG)
+            ++flagCount;
+        tile.setMark(mark);
+        marked = true;
+        for (FieldListener listener : listeners)
+            listener.tileMarked(x * sizeY + y, mark);
+    }
+
+    /**
+     * Before the first reveal the field has no mines yet, the code then holds the layout
+     * the seed gives without a safe first click, which is not the board the first reveal places.
+     * The field itself is left alone, see {@link #isArmed()}.
+     *
+     * @return the code of the current field
+     */
+    public static BoardCode toCode()
+    {
+        if (!armed || seeded)
+            return BoardCode.ofSeed(sizeX, sizeY, mineCount, seed, topology.getKind());
+        long[] bits = new long[(sizeX * sizeY + 63) >>> 6];
+        for (int idx = 0; idx < sizeX * sizeY; idx++)
+            if (isMine(idx))
+                bits[idx >>> 6] |= 1L << idx;
+        return BoardCode.ofLayout(sizeX, sizeY, bits, topology.getKind());
+    }
+
+    /**
+     * Initializes the sizeX, sizeY variables, the engine and the counters of the field.
+     * The queue of {@link #revealTiles(int, int)} is kept if the size did not change.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     */
+    private static void setSize(int rows, int cols, int mines)
+    {
         sizeX = rows;
         sizeY = cols;
-        field = new Tile[sizeX][sizeY];
-        for (int i = 0; i < sizeX; i++)
-            for (int j = 0; j < sizeY; j++)
-                field[i][j] = new Tile();
+        mineCount = mines;
+        flagCount = 0;
+        revealedCount = 0;
+        marked = false;
+        engine = engineFor(rows, cols);
+        if (stack == null || stack.length != rows * cols)
+            stack = new int[rows * cols];
+    }
 
-        setMinesOnRandomPos(mines);
-        calculateTiles();
+    /**
+     * @param count  The amount of tiles
+     * @return  Hidden tiles without mines
+     */
+    private static Tile[] newTiles(int count)
+    {
+        Tile[] tiles = new Tile[count];
+        for (int idx = 0; idx < count; idx++)
+            tiles[idx] = new Tile();
+        return tiles;
     }
 
     /**
-     * Sets N mines on the field.
+     * Marks the tiles of a mine bitset as mines.
      *
-     * @param mines  The number of mines to generate
+     * @param tiles  The tiles to mark
+     * @param bits  The mines, tile {@code (x, y)} is bit {@code x * sizeY + y}
      */
-    private static void setMinesOnRandomPos(int mines)
+    private static void setMines(Tile[] tiles, long[] bits)
     {
-        var cache = new ArrayList<>();
+        for (int idx = 0; idx < tiles.length; idx++)
+            if ((bits[idx >>> 6] & 1L << idx) != 0)
+                tiles[idx].setRank(9);
+    }
+
+    /**
+     * Draws the mine positions of a seeded board without touching the field.
+     * This is the layout of a seed code, {@link #placeMines(int, long, Topology, int, long[], Tile[])}
+     * draws the same one when no tile is kept free.
+     * Tile {@code (x, y)} is bit {@code x * cols + y} of {@code bits}.
+     * It is thread safe and only allocates its {@link Random}.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines to place
+     * @param seed the seed of the placement
+     * @param bits the bitset to fill, at least {@code (rows * cols + 63) / 64} long
+     */
+    static void placeMines(int rows, int cols, int mines, long seed, long[] bits)
+    {
+        Arrays.fill(bits, 0, (rows * cols + 63) >>> 6, 0L);
+        var rnd = new Random(seed);
         for (int i = 0; i < mines; i++) {
-            int x = rand.nextInt(sizeX);
-            int y = rand.nextInt(sizeY);
-            var pos = new AbstractMap.SimpleImmutableEntry<>(x, y);
-            if (cache.contains(pos))
+            int idx = rnd.nextInt(rows) * cols + rnd.nextInt(cols);
+            if ((bits[idx >>> 6] & 1L << idx) != 0)
                 ++mines;
-            else {
-                cache.add(pos);
-                field[x][y].setRank(9);
+            else
+                bits[idx >>> 6] |= 1L << idx;
+        }
+    }
+
+    /**
+     * Draws the mine positions of a seeded board, keeping a tile and its neighbours free.
+     * If the mines do not fit beside the free area only the tile itself is kept free,
+     * and if they do not fit beside the tile either, nothing is.
+     * Without a free tile the layout is the same as {@link #placeMines(int, int, int, long, long[])}.
+     * Dense boards of the packed engine with a free tile place their mines in parallel, see {@link #spreads(long, int, int)}.
+     * If tiles are given their ranks are counted while the mines are placed, so no separate
+     * ranking pass is needed. Without tiles it is thread safe and never builds the neighbour table.
+     *
+     * @param mines the amount of mines to place
+     * @param seed the seed of the placement
+     * @param topology the size and neighbourhood of the board
+     * @param safe the flat index of the tile to keep free, or -1
+     * @param bits the empty bitset to fill, at least {@code (rows * cols + 63) / 64} long
+     * @param tiles fresh tiles to place the mines on and rank, or {@code null}
+     */
+    static void placeMines(int mines, long seed, Topology topology, int safe, long[] bits, Tile[] tiles)
+    {
+        int rows = topology.getRows();
+        int cols = topology.getCols();
+        int cells = rows * cols;
+        long[] blocked = new long[bits.length];
+        int free = cells;
+        if (safe >= 0 && mines < cells) {
+            blocked[safe >>> 6] |= 1L << safe;
+            --free;
+            int[] near = new int[8];
+            int degree = topology.neighbours(safe, near);
+            if (mines <= cells - 1 - degree)
+                for (int k = 0; k < degree; k++) {
+                    blocked[near[k] >>> 6] |= 1L << near[k];
+                    --free;
+                }
+        }
+        if (spreads(cells, mines, safe)) {
+            spreadMines(mines, seed, cells, blocked, bits);
+            if (tiles != null) {
+                setMines(tiles, bits);
+                calculateTiles(tiles, topology);
+            }
+            return;
+        }
+        int[] offsets = tiles != null ? topology.offsets() : null;
+        int[] neighbours = tiles != null ? topology.neighbours() : null;
+        var rnd = new Random(seed);
+        if (free == cells || 2 * mines <= free) {
+            for (int placed = 0; placed < mines; ) {
+                int idx = rnd.nextInt(rows) * cols + rnd.nextInt(cols);
+                if (((bits[idx >>> 6] | blocked[idx >>> 6]) & 1L << idx) == 0) {
+                    placeMine(idx, offsets, neighbours, bits, tiles);
+                    ++placed;
+                }
+            }
+        } else {
+            // Dense boards would mostly draw taken tiles, so shuffle the free ones instead.
+            int[] open = new int[free];
+            for (int idx = 0, n = 0; idx < cells; idx++)
+                if ((blocked[idx >>> 6] & 1L << idx) == 0)
+                    open[n++] = idx;
+            for (int i = 0; i < mines; i++) {
+                int j = i + rnd.nextInt(free - i);
+                int idx = open[j];
+                open[j] = open[i];
+                placeMine(idx, offsets, neighbours, bits, tiles);
             }
         }
     }
 
+    /** Sets a mine and adds it to the ranks of its neighbours. */
+    private static void placeMine(int idx, int[] offsets, int[] neighbours, long[] bits, Tile[] tiles)
+    {
+        bits[idx >>> 6] |= 1L << idx;
+        if (tiles == null)
+            return;
+        tiles[idx].setRank(9);
+        for (int k = offsets[idx]; k < offsets[idx + 1]; k++) {
+            Tile tile = tiles[neighbours[k]];
+            if (!tile.isMine())
+                tile.setRank(tile.getRank() + 1);
+        }
+    }
+
+    /**
+     * Drawing the mines one by one is bound by the misses into the bitset on large dense boards,
+     * those are placed by {@link #spreadMines(int, long, int, long[], long[])} instead.
+     * A seed code never spreads its mines, so its layout does not change with this choice.
+     *
+     * @param cells the amount of tiles
+     * @param mines the amount of mines
+     * @param safe the flat index of the tile to keep free, or -1
+     * @return {@code true} if the mines are placed in parallel stripes
+     */
+    static boolean spreads(long cells, int mines, int safe)
+    {
+        return safe >= 0 && cells >= PACKED_THRESHOLD && mines >= cells / SPREAD_DENSITY;
+    }
+
+    /**
+     * Places the mines in parallel stripes. Every free tile gets a key hashed from the seed and its index,
+     * and the mines are the free tiles with the smallest keys, so every layout is equally likely
+     * and it does not depend on the amount of threads.
+     * A histogram of the top bits of the keys finds the bucket of the last mine, and only that bucket is sorted.
+     *
+     * @param mines the amount of mines to place
+     * @param seed the seed of the placement
+     * @param cells the amount of tiles
+     * @param blocked the tiles kept free
+     * @param bits the empty bitset to fill
+     */
+    private static void spreadMines(int mines, long seed, int cells, long[] blocked, long[] bits)
+    {
+        int stripes = (cells + STRIPE - 1) / STRIPE;
+        long[] histogram = IntStream.range(0, stripes).parallel().collect(() -> new long[1 << SPREAD_BUCKET_BITS], (counts, s) -> {
+            for (int idx = s * STRIPE; idx < Math.min(cells, (s + 1) * STRIPE); idx++)
+                if ((blocked[idx >>> 6] & 1L << idx) == 0)
+                    ++counts[(int) (key(seed, idx) >>> 63 - SPREAD_BUCKET_BITS)];
+        }, (a, b) -> Arrays.setAll(a, i -> a[i] + b[i]));
+        int last = 0;
+        long below = 0;
+        while (below + histogram[last] < mines)
+            below += histogram[last++];
+        int edge = last;
+        // The keys of the last bucket without its bits and above the index, so they sort into the order of the mines.
+        long[] order = IntStream.range(0, stripes).parallel().mapToObj(s -> {
+            long[] found = new long[16];
+            int n = 0;
+            for (int idx = s * STRIPE; idx < Math.min(cells, (s + 1) * STRIPE); idx++) {
+                long key = key(seed, idx);
+                if ((blocked[idx >>> 6] & 1L << idx) == 0 && (int) (key >>> 63 - SPREAD_BUCKET_BITS) == edge) {
+                    if (n == found.length)
+                        found = Arrays.copyOf(found, 2 * n);
+                    found[n++] = order(key, idx);
+                }
+            }
+            return Arrays.copyOf(found, n);
+        }).flatMapToLong(LongStream::of).toArray();
+        Arrays.sort(order);
+        long limit = order[(int) (mines - below - 1)];
+        // The stripes are a multiple of 64 tiles, so no two of them write the same word.
+        IntStream.range(0, stripes).parallel().forEach(s -> {
+            for (int idx = s * STRIPE; idx < Math.min(cells, (s + 1) * STRIPE); idx++) {
+                if ((blocked[idx >>> 6] & 1L << idx) != 0)
+                    continue;
+                long key = key(seed, idx);
+                int bucket = (int) (key >>> 63 - SPREAD_BUCKET_BITS);
+                if (bucket < edge || bucket == edge && order(key, idx) <= limit)
+                    bits[idx >>> 6] |= 1L << idx;
+            }
+        });
+    }
+
+    /** @return the non-negative key of a tile in {@link #spreadMines(int, long, int, long[], long[])}, the SplitMix64 mix */
+    private static long key(long seed, int idx)
+    {
+        long z = seed + (idx + 1L) * 0x9E3779B97F4A7C15L;
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return (z ^ z >>> 31) >>> 1;
+    }
+
+    /** @return the bits of a key below its bucket, shortened to fit above the index of the tile */
+    private static long order(long key, int idx)
+    {
+        return (key >>> 63 - SPREAD_BUCKET_BITS - 37 & (1L << 37) - 1) << 26 | idx;
+    }
+
     /**
      * Debug method for counting the generated mines.
      */
@@ -175,10 +1089,9 @@ public final class Field {
     public static void countMines()
     {
         int count = 0;
-        for (int i = 0; i < sizeX; i++)
-            for (int j = 0; j < sizeY; j++)
-                if (field[i][j].isMine())
-                    ++count;
+        for (int idx = 0; idx < sizeX * sizeY; idx++)
+            if (isMine(idx))
+                ++count;
 
         System.out.println(count);
     }
@@ -200,12 +1113,92 @@ public final class Field {
     }
 
     /**
+     * Sets the neighbourhood used from the next generated field on.
+     *
+     * @param kind  The neighbourhood
+     */
+    public static void setTopology(Topology.Kind kind)
+    {
+        if (kind == null)
+            throw new IllegalArgumentException("Topology cannot be null!");
+        Field.kind = kind;
+    }
+
+    /**
+     * @return  The neighbourhood of the next generated field
+     */
+    public static Topology.Kind getTopologyKind()
+    {
+        return kind;
+    }
+
+    /**
+     * @return  The neighbourhood of the current field
+     */
+    public static Topology getTopology()
+    {
+        return topology;
+    }
+
+    /**
+     * @return  The engine of the current field
+     */
+    public static Engine getEngine()
+    {
+        return engine;
+    }
+
+    /**
+     * @return  The amount of mines on the current field
+     */
+    public static int getMineCount()
+    {
+        return mineCount;
+    }
+
+    /**
+     * @return  The amount of tiles marked with {@link Tile#FLAG}
+     */
+    public static int getFlagCount()
+    {
+        return flagCount;
+    }
+
+    /**
+     * @return  The seed the current field was generated from
+     */
+    public static long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * @return  {@code true} if the seed alone gives the mines of the current field,
+     *          {@code false} for a loaded layout or a safe first click
+     */
+    public static boolean isSeeded()
+    {
+        return seeded;
+    }
+
+    /**
+     * @return  {@code false} until the mines of the current field are placed on its first reveal
+     */
+    public static boolean isArmed()
+    {
+        return armed;
+    }
+
+    /**
+     * On a packed field the tile is a view of the field made on every call,
+     * loops over the field use the accessors of a flat index like {@link #getRank(int)} instead.
+     *
      * @param x  The x coordinate
      * @param y  The y coordinate
      * @return The {@link quasar6.main.Tile Tile} object at the given coordinates
      */
     public static Tile getTileAt(int x, int y)
     {
-        return field[x][y];
+        return cells != null ? new PackedTile(x * sizeY + y) : field[x * sizeY + y];
     }
 }
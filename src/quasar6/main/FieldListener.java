@@ -0,0 +1,28 @@
+package quasar6.main;
+
+/**
+ * Receives the changes of {@link Field}.
+ * The listeners are called synchronously on the thread changing the field,
+ * which is the EDT for the GUI, so implementations should only record the change.
+ * Tiles are given by their flat index {@code x * Field.getSizeY() + y}.
+ */
+public interface FieldListener {
+
+    /** Called after a new field is generated or loaded, every tile may have changed. */
+    void fieldGenerated();
+
+    /**
+     * Called after tiles are revealed.
+     *
+     * @param cells the revealed tiles, the array must not be modified
+     */
+    void tilesRevealed(int[] cells);
+
+    /**
+     * Called after the mark of a tile changed.
+     *
+     * @param idx the tile
+     * @param mark the new mark, see {@link Tile#FLAG}
+     */
+    void tileMarked(int idx, int mark);
+}
@@ -0,0 +1,341 @@
+package quasar6.main;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * Draws {@link Field} onto the matrix of buttons, or onto a canvas for boards too large for buttons.
+ * Changes of the field only mark tiles dirty, the dirty tiles are drawn together once per frame
+ * on the EDT followed by a single repaint of the panel. So a large cascade or the game over reveal
+ * costs one repaint instead of one per tile. The whole board is also drawn from the model when the
+ * game is paused, resumed or over, so the view never has to remember what the buttons showed.
+ * The canvas keeps no state per tile, it only tracks the rectangle of the dirty tiles and paints
+ * the visible part of it straight from the model.
+ */
+public final class FieldView implements FieldListener {
+
+    /** Side of a tile on the canvas in pixels. */
+    public static final int TILE_SIZE = 24;
+
+    private static final int FRAME_MILLIS = 16;
+    private static final Color flagTileColor = new Color(79, 130, 66);
+    private static final Color hiddenTileColor = Color.DARK_GRAY;
+    private static final Color revealedTileColor = Color.GRAY;
+    private static final Color qmarkColor = new Color(0, 35, 102);
+
+    /** Receives the presses on the canvas. */
+    public interface PressHandler {
+        /**
+         * @param x the x coordinate of the pressed tile
+         * @param y the y coordinate of the pressed tile
+         * @param secondary {@code true} for the right mouse button
+         */
+        void pressed(int x, int y, boolean secondary);
+    }
+
+    /** What a tile shows, shared by the buttons and the canvas. */
+    private record Look(Color background, Color foreground, String text, Icon icon) {}
+
+    private final JPanel panel;
+    private final Icon flagIcon;
+    private final Icon qmarkIcon;
+    private final Icon mineIcon;
+    private final Timer frame = new Timer(FRAME_MILLIS, e -> flush());
+
+    private MatrixJButton[][] buttons;
+
+    /** The canvas, {@code null} until it is first used. */
+    private TileCanvas canvas;
+
+    /** {@code true} while the field is drawn on {@link #canvas}. */
+    private boolean canvasMode;
+
+    /** Dirty tiles as a set and in the order they were marked. */
+    private boolean[] dirty = new boolean[0];
+    private int[] queue = new int[0];
+    private int queued;
+
+    /** The rectangle of the dirty tiles on the canvas, empty when {@code top > bottom}. */
+    private int top = Integer.MAX_VALUE;
+    private int left = Integer.MAX_VALUE;
+    private int bottom = -1;
+    private int right = -1;
+
+    private boolean paused;
+
+    /** When {@code true} mines and wrong marks are shown. */
+    private boolean exposed;
+
+    /**
+     * @param panel the panel holding the buttons
+     * @param flagIcon the icon of flagged tiles
+     * @param qmarkIcon the icon of question marked tiles
+     * @param mineIcon the icon of mines at the end of the game
+     */
+    public FieldView(JPanel panel, Icon flagIcon, Icon qmarkIcon, Icon mineIcon)
+    {
+        this.panel = panel;
+        this.flagIcon = flagIcon;
+        this.qmarkIcon = qmarkIcon;
+        this.mineIcon = mineIcon;
+        frame.setRepeats(false);
+    }
+
+    /**
+     * Sets the buttons of the current field and draws all of them in the next frame.
+     *
+     * @param buttons the buttons, at least the size of the field
+     */
+    public void setButtons(MatrixJButton[][] buttons)
+    {
+        this.buttons = buttons;
+        canvasMode = false;
+        if (dirty.length != Field.getSizeX() * Field.getSizeY()) {
+            dirty = new boolean[Field.getSizeX() * Field.getSizeY()];
+            queue = new int[dirty.length];
+            queued = 0;
+        }
+        invalidateAll();
+    }
+
+    /**
+     * Draws the current field onto the canvas instead of the buttons.
+     *
+     * @param handler receives the presses on the canvas
+     * @return the canvas sized for the current field, to be put into a scroll pane
+     */
+    public JComponent useCanvas(PressHandler handler)
+    {
+        if (canvas == null)
+            canvas = new TileCanvas();
+        canvas.handler = handler;
+        canvas.revalidate();
+        buttons = null;
+        canvasMode = true;
+        dirty = new boolean[0];
+        queue = new int[0];
+        queued = 0;
+        invalidateAll();
+        return canvas;
+    }
+
+    /** Leaves the paused and game over looks, e.g. for a new game. */
+    public void reset()
+    {
+        paused = false;
+        exposed = false;
+        invalidateAll();
+    }
+
+    /**
+     * @param paused {@code true} to hide the whole board
+     */
+    public void setPaused(boolean paused)
+    {
+        this.paused = paused;
+        invalidateAll();
+    }
+
+    /** Shows the mines and the wrong marks and draws them right away. */
+    public void showGameOver()
+    {
+        exposed = true;
+        invalidateAll();
+        flush();
+    }
+
+    @Override
+    public void fieldGenerated()
+    {
+        invalidateAll();
+    }
+
+    @Override
+    public void tilesRevealed(int[] cells)
+    {
+        for (int idx : cells)
+            invalidate(idx);
+    }
+
+    @Override
+    public void tileMarked(int idx, int mark)
+    {
+        invalidate(idx);
+    }
+
+    private void invalidate(int idx)
+    {
+        if (canvasMode) {
+            int cols = Field.getSizeY();
+            top = Math.min(top, idx / cols);
+            bottom = Math.max(bottom, idx / cols);
+            left = Math.min(left, idx % cols);
+            right = Math.max(right, idx % cols);
+        } else {
+            if (idx >= dirty.length || dirty[idx])
+                return;
+            dirty[idx] = true;
+            queue[queued++] = idx;
+        }
+        if (!frame.isRunning())
+            frame.start();
+    }
+
+    private void invalidateAll()
+    {
+        if (canvasMode) {
+            invalidate(0);
+            invalidate(Field.getSizeX() * Field.getSizeY() - 1);
+            return;
+        }
+        for (int idx = 0; idx < dirty.length; idx++)
+            invalidate(idx);
+    }
+
+    /** Draws the dirty tiles and repaints the panel once. */
+    public void flush()
+    {
+        frame.stop();
+        if (canvasMode) {
+            if (top <= bottom)
+                canvas.repaint(left * TILE_SIZE, top * TILE_SIZE,
+                        (right - left + 1) * TILE_SIZE, (bottom - top + 1) * TILE_SIZE);
+            top = left = Integer.MAX_VALUE;
+            bottom = right = -1;
+            return;
+        }
+        if (buttons == null || queued == 0)
+            return;
+        int cols = Field.getSizeY();
+        for (int k = 0; k < queued; k++) {
+            int idx = queue[k];
+            dirty[idx] = false;
+            draw(buttons[idx / cols][idx % cols], idx);
+        }
+        queued = 0;
+        panel.repaint();
+    }
+
+    /** @param idx the flat index of the tile, read through the accessors of {@link Field} */
+    private Look look(int idx)
+    {
+        int rank = Field.getRank(idx);
+        int mark = Field.getMark(idx);
+        if (exposed && rank == 9)
+            return new Look(hiddenTileColor, Color.BLACK, "", mineIcon);
+        if (exposed && mark != Tile.NONE)
+            return new Look(Color.RED, Color.BLACK, "", null);
+        if (!paused && !Field.isHidden(idx))
+            return rank == 0 ? new Look(revealedTileColor, Color.BLACK, "", null)
+                    : new Look(revealedTileColor, Tile.colorOf(rank), Integer.toString(rank), null);
+        if (!paused && mark == Tile.FLAG)
+            return new Look(flagTileColor, Color.BLACK, "", flagIcon);
+        if (!paused && mark == Tile.QMARK)
+            return new Look(qmarkColor, Color.BLACK, "", qmarkIcon);
+        return new Look(hiddenTileColor, Color.BLACK, "", null);
+    }
+
+    private void draw(MatrixJButton btn, int idx)
+    {
+        Look look = look(idx);
+        btn.setBackground(look.background());
+        btn.setForeground(look.foreground());
+        btn.setText(look.text());
+        btn.setIcon(look.icon());
+        btn.setEnabled(!paused);
+    }
+
+    /** Paints the tiles in the clip of every repaint, so only the visible part of a large board is drawn. */
+    @SuppressWarnings("serial")
+    private final class TileCanvas extends JComponent implements Scrollable {
+
+        private PressHandler handler;
+
+        private TileCanvas()
+        {
+            setFont(new Font("Dialog", Font.BOLD, TILE_SIZE * 2 / 3));
+            addMouseListener(new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e)
+                {
+                    int x = e.getY() / TILE_SIZE;
+                    int y = e.getX() / TILE_SIZE;
+                    if (paused || handler == null || x >= Field.getSizeX() || y >= Field.getSizeY())
+                        return;
+                    if (e.getButton() == MouseEvent.BUTTON1 || e.getButton() == MouseEvent.BUTTON3)
+                        handler.pressed(x, y, e.getButton() == MouseEvent.BUTTON3);
+                }
+            });
+        }
+
+        @Override
+        public Dimension getPreferredSize()
+        {
+            return new Dimension(Field.getSizeY() * TILE_SIZE, Field.getSizeX() * TILE_SIZE);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g)
+        {
+            Rectangle clip = g.getClipBounds();
+            int fromX = Math.max(0, clip.y / TILE_SIZE);
+            int toX = Math.min(Field.getSizeX(), (clip.y + clip.height + TILE_SIZE - 1) / TILE_SIZE);
+            int fromY = Math.max(0, clip.x / TILE_SIZE);
+            int toY = Math.min(Field.getSizeY(), (clip.x + clip.width + TILE_SIZE - 1) / TILE_SIZE);
+            FontMetrics metrics = g.getFontMetrics();
+            int cols = Field.getSizeY();
+            for (int i = fromX; i < toX; i++)
+                for (int j = fromY; j < toY; j++) {
+                    Look look = look(i * cols + j);
+                    int px = j * TILE_SIZE;
+                    int py = i * TILE_SIZE;
+                    g.setColor(look.background());
+                    g.fillRect(px, py, TILE_SIZE, TILE_SIZE);
+                    g.setColor(Color.BLACK);
+                    g.drawRect(px, py, TILE_SIZE - 1, TILE_SIZE - 1);
+                    if (look.icon() instanceof ImageIcon image)
+                        g.drawImage(image.getImage(), px + 2, py + 2, TILE_SIZE - 4, TILE_SIZE - 4, this);
+                    else if (look.icon() != null)
+                        look.icon().paintIcon(this, g, px, py);
+                    if (!look.text().isEmpty()) {
+                        g.setColor(look.foreground());
+                        g.drawString(look.text(), px + (TILE_SIZE - metrics.stringWidth(look.text())) / 2,
+                                py + (TILE_SIZE + metrics.getAscent() - metrics.getDescent()) / 2);
+                    }
+                }
+        }
+
+        @Override
+        public Dimension getPreferredScrollableViewportSize()
+        {
+            return getPreferredSize();
+        }
+
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction)
+        {
+            return TILE_SIZE;
+        }
+
+        @Override
+        public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction)
+        {
+            int extent = orientation == SwingConstants.VERTICAL ? visible.height : visible.width;
+            return Math.max(TILE_SIZE, extent - TILE_SIZE);
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportWidth()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportHeight()
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,688 @@
+package quasar6.main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Append-only archive of finished games with streaming queries over it.
+ * Every game is a fixed {@link #RECORD} byte little-endian record after an {@link #HEADER} byte header:
+ * <pre>
+ *  0 long  seed
+ *  8 short rows
+ * 10 short columns
+ * 12 int   mines
+ * 16 byte  topology, bit 7 set if the board is seeded
+ * 17 byte  1 if won, 0 if lost
+ * 18 byte  highest rank revealed around the death tile, -1 if none
+ * 19 byte  revealed tiles around the death tile
+ * 20 int   first click
+ * 24 int   death tile or -1
+ * 28 int   milliseconds from the first click to the end
+ * </pre>
+ * Tiles are flat indices ({@code x * columns + y}). Since the records have a fixed size the file is
+ * split into chunks which are memory-mapped and scanned in parallel, each thread folding into its own
+ * accumulator, so a pass needs a fixed amount of heap no matter how many games the archive holds.
+ */
+public final class GameArchive {
+
+    public static final int HEADER = 8;
+    public static final int RECORD = 32;
+
+    /** "QMSA" followed by the format version. */
+    private static final long MAGIC = 0x41534D51L | 1L << 32;
+
+    /** Records mapped and scanned by one task. */
+    private static final int CHUNK = 1 << 17;
+
+    private GameArchive() {}
+
+    /**
+     * A finished game, as written to the archive.
+     *
+     * @param seed the seed the mines were drawn from, 0 for a board loaded from a mine layout
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @param kind the neighbourhood
+     * @param seeded {@code true} if {@link BoardCode#ofSeed} rebuilds the board, {@code false} if the first click
+     *               was kept safe, which is rebuilt from the seed and the first click, or if the board was loaded
+     *               from a mine layout, which the archive does not hold, so that board can not be rebuilt
+     * @param won {@code true} if the game was won
+     * @param firstClick the first revealed tile
+     * @param deathTile the mine which ended the game or -1
+     * @param deathRank the highest rank revealed around the death tile, -1 if it was a blind guess
+     * @param deathOpen the amount of revealed tiles around the death tile
+     * @param millis the time from the first click to the end
+     */
+    public record Game(long seed, int rows, int cols, int mines, Topology.Kind kind, boolean seeded, boolean won,
+                       int firstClick, int deathTile, int deathRank, int deathOpen, int millis) {
+
+        private void write(ByteBuffer buf, int at)
+        {
+            buf.putLong(at, seed);
+            buf.putShort(at + 8, (short) rows);
+            buf.putShort(at + 10, (short) cols);
+            buf.putInt(at + 12, mines);
+            buf.put(at + 16, (byte) (kind.ordinal() | (seeded ? 0x80 : 0)));
+            buf.put(at + 17, (byte) (won ? 1 : 0));
+            buf.put(at + 18, (byte) deathRank);
+            buf.put(at + 19, (byte) deathOpen);
+            buf.putInt(at + 20, firstClick);
+            buf.putInt(at + 24, deathTile);
+            buf.putInt(at + 28, millis);
+        }
+    }
+
+    /**
+     * Reads the record under the cursor of a scan without copying it.
+     * Only valid inside the accumulator it was passed to.
+     */
+    public static final class Entry {
+
+        private ByteBuffer buf;
+        private int at;
+
+        private Entry() {}
+
+        public long getSeed()
+        {
+            return buf.getLong(at);
+        }
+
+        public int getRows()
+        {
+            return buf.getShort(at + 8);
+        }
+
+        public int getCols()
+        {
+            return buf.getShort(at + 10);
+        }
+
+        public int getMineCount()
+        {
+            return buf.getInt(at + 12);
+        }
+
+        public Topology.Kind getTopology()
+        {
+            return Topology.Kind.values()[buf.get(at + 16) & 0x7F];
+        }
+
+        public boolean isSeeded()
+        {
+            return (buf.get(at + 16) & 0x80) != 0;
+        }
+
+        public boolean isWon()
+        {
+            return buf.get(at + 17) != 0;
+        }
+
+        public int getDeathRank()
+        {
+            return buf.get(at + 18);
+        }
+
+        public int getDeathOpen()
+        {
+            return buf.get(at + 19);
+        }
+
+        public int getFirstClick()
+        {
+            return buf.getInt(at + 20);
+        }
+
+        public int getDeathTile()
+        {
+            return buf.getInt(at + 24);
+        }
+
+        public int getMillis()
+        {
+            return buf.getInt(at + 28);
+        }
+
+        /** @return the name of the difficulty the size belongs to, or "Custom", followed by the topology unless it is square */
+        public String getPreset()
+        {
+            return preset(presetIndex(getRows(), getCols(), getMineCount()), getTopology());
+        }
+    }
+
+    /**
+     * Appends the games played on {@link Field} to an archive.
+     * It learns the first click from the field, the end of the game is told by the GUI.
+     * Every game is written with a single write call, so a crash loses at most the game being written.
+     */
+    public static final class Recorder implements FieldListener, Closeable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocate(RECORD).order(ByteOrder.LITTLE_ENDIAN);
+        private int firstClick = -1;
+        private long start;
+
+        /**
+         * Opens an archive for appending, it is created if it does not exist.
+         *
+         * @param file the archive
+         * @throws IOException if the file can not be opened or is not an archive
+         */
+        public Recorder(Path file) throws IOException
+        {
+            channel = open(file);
+        }
+
+        @Override
+        public void fieldGenerated()
+        {
+            firstClick = -1;
+        }
+
+        @Override
+        public void tilesRevealed(int[] cells)
+        {
+            if (firstClick < 0) {
+                firstClick = cells[0];
+                start = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void tileMarked(int idx, int mark) {}
+
+        /**
+         * Records a won game of the current field.
+         *
+         * @throws IOException if the archive can not be written
+         */
+        public void won() throws IOException
+        {
+            write(true, -1, -1, 0);
+        }
+
+        /**
+         * Records a lost game of the current field.
+         *
+         * @param mine the flat index of the mine which was revealed
+         * @throws IOException if the archive can not be written
+         */
+        public void lost(int mine) throws IOException
+        {
+            if (firstClick < 0)
+                tilesRevealed(new int[]{mine});
+            Topology topology = Field.getTopology();
+            int rank = -1;
+            int open = 0;
+            int[] near = new int[8];
+            for (int k = topology.neighbours(mine, near) - 1; k >= 0; k--) {
+                int n = near[k];
+                Tile tile = Field.getTileAt(n / Field.getSizeY(), n % Field.getSizeY());
+                if (!tile.isHidden()) {
+                    ++open;
+                    rank = Math.max(rank, tile.getRank());
+                }
+            }
+            write(false, mine, rank, open);
+        }
+
+        private void write(boolean won, int deathTile, int deathRank, int deathOpen) throws IOException
+        {
+            int millis = firstClick < 0 ? 0 : (int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - start) / 1_000_000);
+            new Game(Field.getSeed(), Field.getSizeX(), Field.getSizeY(), Field.getMineCount(), Field.getTopology().getKind(),
+                    Field.isSeeded(), won, Math.max(firstClick, 0), deathTile, deathRank, deathOpen, millis)
+                    .write(buf, 0);
+            buf.clear();
+            while (buf.hasRemaining())
+                channel.write(buf);
+            buf.clear();
+            firstClick = -1;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Opens an archive for appending and writes the header of a new one.
+     *
+     * @param file the archive
+     * @return the channel positioned at the end of the last complete record
+     * @throws IOException if the file can not be opened or is not an archive
+     */
+    private static FileChannel open(Path file) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN).putLong(0, MAGIC);
+                while (header.hasRemaining())
+                    channel.write(header);
+            } else
+                checkHeader(channel);
+            channel.position(HEADER + records(channel) * RECORD);
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void checkHeader(FileChannel channel) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {}
+        if (header.hasRemaining() || header.getLong(0) != MAGIC)
+            throw new IllegalArgumentException("Not a game archive!");
+    }
+
+    /** @return the amount of complete records, a torn record at the end is ignored */
+    private static long records(FileChannel channel) throws IOException
+    {
+        return Math.max(0, channel.size() - HEADER) / RECORD;
+    }
+
+    /**
+     * Appends games to an archive.
+     *
+     * @param file the archive, created if it does not exist
+     * @param games the games to append
+     * @throws IOException if the file can not be written or is not an archive
+     */
+    public static void append(Path file, Game... games) throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.allocate(games.length * RECORD).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < games.length; i++)
+            games[i].write(buf, i * RECORD);
+        try (FileChannel channel = open(file)) {
+            while (buf.hasRemaining())
+                channel.write(buf);
+        }
+    }
+
+    /**
+     * Folds every game of an archive. The archive is split into chunks which are
+     * memory-mapped one at a time per thread and scanned in parallel. Every thread
+     * gets its own accumulator from the supplier, they are merged at the end.
+     *
+     * @param file the archive
+     * @param supplier creates an empty accumulator
+     * @param accumulator adds a game to an accumulator
+     * @param combiner merges the second accumulator into the first one
+     * @return the accumulator holding all games
+     * @throws IOException if the file can not be read or is not an archive
+     */
+    public static <A> A scan(Path file, Supplier<A> supplier, BiConsumer<A, Entry> accumulator, BiConsumer<A, A> combiner)
+            throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            checkHeader(channel);
+            long records = records(channel);
+            int chunks = (int) ((records + CHUNK - 1) / CHUNK);
+            return IntStream.range(0, chunks).parallel().collect(supplier, (acc, c) -> {
+                long first = (long) c * CHUNK;
+                int count = (int) Math.min(CHUNK, records - first);
+                ByteBuffer buf;
+                try {
+                    buf = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + first * RECORD, (long) count * RECORD)
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                var entry = new Entry();
+                entry.buf = buf;
+                for (int i = 0; i < count; i++) {
+                    entry.at = i * RECORD;
+                    accumulator.accept(acc, entry);
+                }
+            }, combiner);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** The difficulties, followed by the custom sizes. */
+    private static final String[] PRESETS = {Field.BEGINNER, Field.INTERMEDIATE, Field.EXPERT, "Custom"};
+
+    /** The rows, columns and mines of the difficulties in {@link #PRESETS}, looked up for every scanned record. */
+    private static final int[][] PRESET_SIZES = {Field.preset(Field.BEGINNER), Field.preset(Field.INTERMEDIATE), Field.preset(Field.EXPERT)};
+
+    /**
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @return the index of the difficulty with this size in {@link #PRESETS}, the last one if none
+     */
+    private static int presetIndex(int rows, int cols, int mines)
+    {
+        for (int p = 0; p < PRESET_SIZES.length; p++)
+            if (PRESET_SIZES[p][0] == rows && PRESET_SIZES[p][1] == cols && PRESET_SIZES[p][2] == mines)
+                return p;
+        return PRESETS.length - 1;
+    }
+
+    /**
+     * @param p the index of the difficulty in {@link #PRESETS}
+     * @param kind the neighbourhood
+     * @return the name of the difficulty, followed by the topology unless it is square
+     */
+    private static String preset(int p, Topology.Kind kind)
+    {
+        return kind == Topology.Kind.SQUARE ? PRESETS[p] : PRESETS[p] + " " + kind.getLabel();
+    }
+
+    ////////////////////////////////Queries start////////////////////////////////
+
+    /** Win rate by the position of the first click, for one board size and topology. */
+    private static final class Heatmap {
+
+        private final int rows;
+        private final int cols;
+        private final int mines;
+        private final Topology.Kind kind;
+        private final long[] games;
+        private final long[] wins;
+
+        private Heatmap(int rows, int cols, int mines, Topology.Kind kind)
+        {
+            this.rows = rows;
+            this.cols = cols;
+            this.mines = mines;
+            this.kind = kind;
+            games = new long[rows * cols];
+            wins = new long[rows * cols];
+        }
+
+        private void add(Entry e)
+        {
+            if (e.getRows() != rows || e.getCols() != cols || e.getMineCount() != mines || e.getTopology() != kind)
+                return;
+            ++games[e.getFirstClick()];
+            if (e.isWon())
+                ++wins[e.getFirstClick()];
+        }
+
+        private void merge(Heatmap other)
+        {
+            for (int i = 0; i < games.length; i++) {
+                games[i] += other.games[i];
+                wins[i] += other.wins[i];
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            var sb = new StringBuilder("Win % by first click (" + rows + "x" + cols + ", " + mines + " mines, "
+                    + kind.getLabel() + "), . = no games\n");
+            for (int i = 0; i < rows; i++) {
+                for (int j = 0; j < cols; j++) {
+                    int idx = i * cols + j;
+                    sb.append(games[idx] == 0 ? "   ." : String.format(Locale.ROOT, "%4d", 100 * wins[idx] / games[idx]));
+                }
+                sb.append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    /** Lost games by what was revealed around the mine that ended them. */
+    private static final class Deaths {
+
+        /** {@code counts[rank + 1][open]} */
+        private final long[][] counts = new long[10][9];
+        private long lost;
+
+        private void add(Entry e)
+        {
+            if (e.isWon() || e.getDeathTile() < 0)
+                return;
+            ++lost;
+            ++counts[e.getDeathRank() + 1][Math.min(8, e.getDeathOpen())];
+        }
+
+        private void merge(Deaths other)
+        {
+            lost += other.lost;
+            for (int r = 0; r < counts.length; r++)
+                for (int o = 0; o < counts[r].length; o++)
+                    counts[r][o] += other.counts[r][o];
+        }
+
+        @Override
+        public String toString()
+        {
+            var sb = new StringBuilder("Deaths by highest revealed neighbour rank (" + lost + " lost games)\n");
+            sb.append("rank      share   by revealed neighbours 0..8\n");
+            for (int r = 0; r < counts.length; r++) {
+                long total = 0;
+                for (long c : counts[r])
+                    total += c;
+                if (total == 0)
+                    continue;
+                sb.append(String.format(Locale.ROOT, "%-8s %6.2f%% ", r == 0 ? "blind" : Integer.toString(r - 1), 100.0 * total / lost));
+                for (long c : counts[r])
+                    sb.append(String.format(Locale.ROOT, " %7d", c));
+                sb.append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Time to solve percentiles of won games per difficulty and topology, in 100 ms buckets up to an hour.
+     * Bucket {@code p} holds the difficulty {@code p % PRESETS.length} on the topology {@code p / PRESETS.length}.
+     */
+    private static final class Times {
+
+        private static final Topology.Kind[] KINDS = Topology.Kind.values();
+        private static final int BUCKETS = 36_001;
+        private final long[][] counts = new long[KINDS.length * PRESETS.length][];
+
+        private void add(Entry e)
+        {
+            if (!e.isWon())
+                return;
+            int p = e.getTopology().ordinal() * PRESETS.length + presetIndex(e.getRows(), e.getCols(), e.getMineCount());
+            if (counts[p] == null)
+                counts[p] = new long[BUCKETS];
+            ++counts[p][Math.min(BUCKETS - 1, e.getMillis() / 100)];
+        }
+
+        private void merge(Times other)
+        {
+            for (int p = 0; p < counts.length; p++) {
+                if (other.counts[p] == null)
+                    continue;
+                if (counts[p] == null)
+                    counts[p] = new long[BUCKETS];
+                for (int b = 0; b < BUCKETS; b++)
+                    counts[p][b] += other.counts[p][b];
+            }
+        }
+
+        /** @return the time in seconds under which the given fraction of the games were solved */
+        private static double percentile(long[] histogram, long total, double fraction)
+        {
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int b = 0; b < histogram.length; b++) {
+                seen += histogram[b];
+                if (seen >= rank)
+                    return (b + 1) / 10.0;
+            }
+            return histogram.length / 10.0;
+        }
+
+        @Override
+        public String toString()
+        {
+            var sb = new StringBuilder("Seconds to solve               won     p50     p90     p99\n");
+            for (int p = 0; p < counts.length; p++) {
+                if (counts[p] == null)
+                    continue;
+                long total = 0;
+                for (long c : counts[p])
+                    total += c;
+                sb.append(String.format(Locale.ROOT, "%-24s %9d %7.1f %7.1f %7.1f%n",
+                        preset(p % PRESETS.length, KINDS[p / PRESETS.length]), total,
+                        percentile(counts[p], total, 0.5), percentile(counts[p], total, 0.9), percentile(counts[p], total, 0.99)));
+            }
+            return sb.toString();
+        }
+    }
+    ////////////////////////////////Queries end//////////////////////////////////
+
+    /**
+     * Plays games with {@link SimplePlayer} and appends them, for filling an archive to query.
+     *
+     * @param file the archive
+     * @param difficulty the difficulty of the games
+     * @param games the amount of games
+     * @param firstSeed the seed of the first game, the others follow it
+     * @throws IOException if the file can not be written
+     */
+    static void simulate(Path file, String difficulty, int games, long firstSeed) throws IOException
+    {
+        int[] preset = Field.preset(difficulty);
+        int batch = 4096;
+        for (int done = 0; done < games; done += batch) {
+            int from = done;
+            Game[] played = IntStream.range(0, Math.min(batch, games - done)).parallel()
+                    .mapToObj(i -> simulate(preset[0], preset[1], preset[2], firstSeed + from + i))
+                    .toArray(Game[]::new);
+            append(file, played);
+        }
+    }
+
+    private static Game simulate(int rows, int cols, int mines, long seed)
+    {
+        var board = new Board(rows, cols, mines, seed, Topology.Kind.SQUARE);
+        var player = new SimplePlayer(seed);
+        int firstClick = -1;
+        int moves = 0;
+        long start = System.nanoTime();
+        Player.Move move = null;
+        while (board.getState() == Board.State.PLAYING && moves++ < 4 * rows * cols) {
+            move = player.nextMove(board.view());
+            if (firstClick < 0 && !move.flag())
+                firstClick = move.x() * cols + move.y();
+            board.apply(move);
+        }
+        int millis = (int) ((System.nanoTime() - start) / 1_000_000);
+        if (board.getState() != Board.State.LOST)
+            return new Game(seed, rows, cols, mines, Topology.Kind.SQUARE, false, board.getState() == Board.State.WON,
+                    firstClick, -1, -1, 0, millis);
+        BoardView view = board.view();
+        Topology topology = view.getTopology();
+        int death = move.x() * cols + move.y();
+        int rank = -1;
+        int open = 0;
+        for (int k = 0; k < topology.degree(death); k++) {
+            int n = topology.neighbour(death, k);
+            int r = view.getRank(n / cols, n % cols);
+            if (r >= 0) {
+                ++open;
+                rank = Math.max(rank, r);
+            }
+        }
+        return new Game(seed, rows, cols, mines, Topology.Kind.SQUARE, false, false, firstClick, death, rank, open, millis);
+    }
+
+    /**
+     * Archives a won Expert game on every topology into a temporary archive
+     * and checks that {@link Times} prints a row for each of them.
+     *
+     * @throws IOException if the temporary archive can not be written
+     * @throws IllegalStateException if a row is missing
+     */
+    static void check() throws IOException
+    {
+        Path file = Files.createTempFile("games", ".qa");
+        try {
+            int[] expert = Field.preset(Field.EXPERT);
+            for (Topology.Kind kind : Topology.Kind.values())
+                append(file, new Game(kind.ordinal(), expert[0], expert[1], expert[2], kind, false, true, 0, -1, -1, 0, 1000));
+            String times = scan(file, Times::new, Times::add, Times::merge).toString();
+            for (Topology.Kind kind : Topology.Kind.values()) {
+                String row = preset(presetIndex(expert[0], expert[1], expert[2]), kind) + " ";
+                if (times.lines().noneMatch(line -> line.startsWith(row)))
+                    throw new IllegalStateException("No times row for " + row.trim() + ":\n" + times);
+            }
+            System.out.print(times);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Query tool.
+     * <pre>
+     * simulate FILE GAMES [DIFFICULTY]       appends games played by the bot
+     * heatmap FILE [DIFFICULTY [TOPOLOGY]]   win rate by first click, square boards by default
+     * deaths FILE                            losses by rank context of the mine
+     * times FILE                             time to solve percentiles per difficulty and topology
+     * count FILE                             games, wins and scan speed
+     * check                                  checks the queries on a temporary archive
+     * </pre>
+     *
+     * @param args the command and its arguments
+     * @throws IOException if the archive can not be read or written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 1 && args[0].equals("check")) {
+            check();
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println("Usage: GameArchive simulate|heatmap|deaths|times|count FILE [ARGS] or GameArchive check");
+            System.exit(2);
+        }
+        Path file = Path.of(args[1]);
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "simulate" -> simulate(file, args.length > 3 ? args[3] : Field.EXPERT, Integer.parseInt(args[2]), System.nanoTime());
+            case "heatmap" -> {
+                int[] preset = Field.preset(args.length > 2 ? args[2] : Field.EXPERT);
+                Topology.Kind kind = args.length > 3 ? Topology.Kind.valueOf(args[3].toUpperCase(Locale.ROOT)) : Topology.Kind.SQUARE;
+                System.out.print(scan(file, () -> new Heatmap(preset[0], preset[1], preset[2], kind), Heatmap::add, Heatmap::merge));
+            }
+            case "deaths" -> System.out.print(scan(file, Deaths::new, Deaths::add, Deaths::merge));
+            case "times" -> System.out.print(scan(file, Times::new, Times::add, Times::merge));
+            case "count" -> {
+                long[] counts = scan(file, () -> new long[2], (acc, e) -> {
+                    ++acc[0];
+                    if (e.isWon())
+                        ++acc[1];
+                }, (a, b) -> {
+                    a[0] += b[0];
+                    a[1] += b[1];
+                });
+                System.out.printf(Locale.ROOT, "%d games, %d won%n", counts[0], counts[1]);
+            }
+            default -> {
+                System.err.println("Unknown command: " + args[0]);
+                System.exit(2);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double megabytes = Files.size(file) / 1e6;
+        System.out.printf(Locale.ROOT, "%.1f MB in %.2f s (%.0f MB/s)%n", megabytes, seconds, megabytes / seconds);
+    }
+}
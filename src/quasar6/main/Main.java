@@ -3,13 +3,16 @@ package quasar6.main;
 import javax.sound.sampled.*;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.datatransfer.StringSelection;
 import java.awt.event.*;
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.util.AbstractMap;
-import java.util.HashMap;
+import java.time.LocalDate;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -21,8 +24,11 @@ import java.util.regex.Pattern;
 /** Singleton class for making the GUI. */
 public class Main {
 
-    /** Amount of flags currently placed. */
-    private static int flagsPlaced = 0;
+    /** Live stream of the game for spectators. */
+    private static final Spectators spectators = new Spectators();
+
+    /** Appends the finished games to an archive, {@code null} until a file is chosen. */
+    private static GameArchive.Recorder recorder;
 
     ////////////////////////////////Swing components start////////////////////////////////
     private static final JFrame app = new JFrame("Minesweeper by Quasar6");
@@ -30,17 +36,16 @@ public class Main {
     private static final JPanel clockPanel = new JPanel();
     private static final JPanel buttonPanel = new JPanel();
     private static final JLabel clockLabel = new JLabel("\u23F1 00:00:00 \u23F1");
-    private static final JLabel flagsLabel = new JLabel(Integer.toString(flagsPlaced));
+    private static final JLabel flagsLabel = new JLabel("0");
     private static final SpringLayout clockPanelLayout = new SpringLayout();
     private static final JRadioButtonMenuItem beginner = new JRadioButtonMenuItem(Field.BEGINNER);
     private static final JRadioButtonMenuItem intermediate = new JRadioButtonMenuItem(Field.INTERMEDIATE);
     private static final JRadioButtonMenuItem expert = new JRadioButtonMenuItem(Field.EXPERT);
+    private static final JRadioButtonMenuItem customGame = new JRadioButtonMenuItem("Custom...");
+    private static final Map<Topology.Kind, JRadioButtonMenuItem> modes = new EnumMap<>(Topology.Kind.class);
     private static final JCheckBoxMenuItem sounds = new JCheckBoxMenuItem("Sounds");
     private static final JButton playPause = new JButton("\u25B6");
-    private static final Color flagTileColor = new Color(79, 130, 66);
     private static final Color hiddenTileColor = Color.DARK_GRAY;
-    private static final Color revealedTileColor = Color.GRAY;
-    private static final Color qmarkColor = new Color(0, 35, 102);
     private static Font defFont = new Font("Dialog", Font.PLAIN, 18);
     ////////////////////////////////Swing components end//////////////////////////////////
 
@@ -51,14 +56,6 @@ public class Main {
      */
     private static final AtomicBoolean started = new AtomicBoolean(false);
 
-    /**
-     * These two maps store the button values and the flag icons.
-     * Keys are map entries with the coordinates of the button in the matrix.
-     * {@link #buttonFlagOnPause}
-     */
-    private static final Map<Map.Entry<Integer, Integer>, String> buttonTextOnPause = new HashMap<>();
-    private static final Map<Map.Entry<Integer, Integer>, ImageIcon> buttonFlagOnPause = new HashMap<>();
-
     /**
      * The measured time.
      * {@code time[0]} = hours
@@ -67,12 +64,33 @@ public class Main {
      */
     private static int[] time;
 
-    /** Matrix containing the buttons for the field.*/
-    private static MatrixJButton[][] buttons;
+    /**
+     * Matrix containing the buttons for the field.
+     * The buttons are reused across games and difficulties, the matrix only grows
+     * to the largest field shown so far and its top left part is the current field.
+     */
+    private static MatrixJButton[][] buttons = new MatrixJButton[0][0];
+
+    /** Rows and columns of the field currently on {@link #buttonPanel}. */
+    private static int shownRows;
+    private static int shownCols;
+
+    /** The scroll pane of the canvas, {@code null} while the buttons are shown. */
+    private static JScrollPane scroll;
+
+    /** Draws {@link Field} onto {@link #buttons}. */
+    private static FieldView view;
 
     /** The current difficulty generated. */
     private static String difficulty;
 
+    /** Rows, columns and mines of the custom game, {@code null} when {@link #difficulty} is played. */
+    private static int[] custom;
+
+    /** The largest field shown with buttons, larger ones are drawn by {@link FieldView#useCanvas}. */
+    private static final int BUTTON_ROWS = 24;
+    private static final int BUTTON_COLS = 30;
+
     /**
      * When set to {@code true} the timer Thread can run,
      * when set to false it terminates that Thread.
@@ -116,6 +134,10 @@ public class Main {
             }
         }
         app.setIconImage(createIconForWindow());
+        view = new FieldView(buttonPanel, createIcon("/quasar6/main/images/flag.gif"),
+                createIcon("/quasar6/main/images/qmark.gif"), createIcon("/quasar6/main/images/mine.gif"));
+        Field.addListener(view);
+        Field.addListener(spectators);
         app.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         final SpringLayout mainLayout = new SpringLayout();
         mainLayout.putConstraint(SpringLayout.NORTH, clockPanel, 0, SpringLayout.NORTH, app);
@@ -130,6 +152,16 @@ public class Main {
         final JMenu diffMenu = new JMenu("Difficulty");
         final ButtonGroup radios = new ButtonGroup();
         final JMenu soundMenu = new JMenu("Sounds");
+        final JMenu modeMenu = new JMenu("Mode");
+        final ButtonGroup modeRadios = new ButtonGroup();
+        final JMenu boardMenu = new JMenu("Board");
+        final JMenuItem loadBoard = new JMenuItem("Load board");
+        final JMenuItem copyCode = new JMenuItem("Copy board code");
+        final JMenuItem daily = new JMenuItem("Daily challenge");
+        final JMenuItem logGames = new JMenuItem("Log games to file");
+        final JMenu spectateMenu = new JMenu("Spectate");
+        final JMenuItem record = new JMenuItem("Record to file");
+        final JMenuItem share = new JMenuItem("Share on local port");
         final JButton help = new JButton("Help");
         help.setOpaque(true);
         help.setContentAreaFilled(false);
@@ -145,18 +177,41 @@ public class Main {
                             "At the top you can see the clock. It starts measuring your time after the first reveal.\n" +
                             "In the top right corner there is the play/pause button.\n" +
                             "When you pause the game you will not see any state of the tiles.\n" +
-                            "In the \"Difficulty\" menu you can change the difficulty any time.", "Help", JOptionPane.PLAIN_MESSAGE);
+                            "In the \"Difficulty\" menu you can change the difficulty any time.\n" +
+                            "In the \"Mode\" menu you can change which tiles count as neighbours:\n" +
+                            "Hexagonal shifts every odd row half a tile right, Toroidal wraps around the edges\n" +
+                            "and Knight counts the tiles a chess knight can reach.", "Help", JOptionPane.PLAIN_MESSAGE);
             setMetalTheme();
         });
         radios.add(beginner);
         radios.add(intermediate);
         radios.add(expert);
+        radios.add(customGame);
         sounds.setSelected(true);
         diffMenu.add(beginner);
         diffMenu.add(intermediate);
         diffMenu.add(expert);
+        diffMenu.addSeparator();
+        diffMenu.add(customGame);
         soundMenu.add(sounds);
+        for (Topology.Kind kind : Topology.Kind.values()) {
+            JRadioButtonMenuItem mode = new JRadioButtonMenuItem(kind.getLabel());
+            mode.addActionListener(e -> onModeChange(kind));
+            modes.put(kind, mode);
+            modeRadios.add(mode);
+            modeMenu.add(mode);
+        }
+        modes.get(Topology.Kind.SQUARE).setSelected(true);
+        boardMenu.add(loadBoard);
+        boardMenu.add(copyCode);
+        boardMenu.add(daily);
+        boardMenu.add(logGames);
         bar.add(diffMenu);
+        bar.add(modeMenu);
+        spectateMenu.add(record);
+        spectateMenu.add(share);
+        bar.add(boardMenu);
+        bar.add(spectateMenu);
         bar.add(soundMenu);
         bar.add(help);
         app.setJMenuBar(bar);
@@ -169,7 +224,14 @@ public class Main {
         beginner.addActionListener(this::onDifficultyChange);
         intermediate.addActionListener(this::onDifficultyChange);
         expert.addActionListener(this::onDifficultyChange);
+        customGame.addActionListener(this::onCustomGame);
         playPause.addActionListener(this::onPlayPause);
+        loadBoard.addActionListener(this::onLoadBoard);
+        copyCode.addActionListener(this::onCopyCode);
+        daily.addActionListener(e -> loadBoard(BoardCode.daily(LocalDate.now(), difficulty)));
+        record.addActionListener(this::onRecord);
+        logGames.addActionListener(this::onLogGames);
+        share.addActionListener(this::onShare);
         playPause.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_SPACE, 0), "Space");
         playPause.getActionMap().put("Space", new AbstractAction() {
             @Override
@@ -202,65 +264,151 @@ public class Main {
         if (diff == null || !Field.BEGINNER.equals(diff) && !Field.INTERMEDIATE.equals(diff) && !Field.EXPERT.equals(diff))
             throw new IllegalArgumentException("Wrong difficulty!");
         difficulty = diff;
+        custom = null;
         Field.generate(difficulty);
-        buttons = new MatrixJButton[Field.getSizeX()][Field.getSizeY()];
-        buttonPanel.setLayout(new GridLayout(Field.getSizeX(), Field.getSizeY()));
-        clockPanel.setPreferredSize(new Dimension(Field.getSizeY() * 45, 50));
-        for (int i = 0; i < Field.getSizeX(); i++) {
-            for (int j = 0; j < Field.getSizeY(); j++) {
-                buttons[i][j] = new MatrixJButton(i, j);
-                buttons[i][j].setBackground(hiddenTileColor);
-                buttons[i][j].setForeground(Color.BLACK);
-                buttons[i][j].setFont(defFont);
-                buttons[i][j].setPreferredSize(new Dimension(45, 45));
-                buttons[i][j].setFocusable(false);
-                buttons[i][j].addActionListener(this::onPress);
-                buttons[i][j].addMouseListener(new MouseAdapter() {
-                    @Override
-                    public void mousePressed(MouseEvent e)
-                    {
-                        if (clockRun)
-                            if (e.getButton() == MouseEvent.BUTTON3) {
-                                MatrixJButton btn = (MatrixJButton)e.getSource();
-                                if (Field.getTileAt(btn.getRow(), btn.getCol()).isHidden())
-                                    if(btn.isEnabled()) {
-                                        if (sounds.isSelected())
-                                            playAudio(getClass().getResourceAsStream("/quasar6/main/sound/flag.wav"));
-                                        if (btn.getIcon() == null) {
-                                            btn.setIcon(createIcon("/quasar6/main/images/flag.gif"));
-                                            btn.setBackground(flagTileColor);
-                                            ++flagsPlaced;
-                                        } else if (((ImageIcon)btn.getIcon()).getDescription().equals("flag")){
-                                            btn.setIcon(createIcon("/quasar6/main/images/qmark.gif"));
-                                            btn.setBackground(qmarkColor);
-                                            --flagsPlaced;
-                                        } else {
-                                            btn.setIcon(null);
-                                            btn.setBackground(hiddenTileColor);
-                                        }
-                                        flagsLabel.setText(Integer.toString(flagsPlaced));
-                                    }
-                            }
-                    }
-                });
-                buttonPanel.add(buttons[i][j]);
+        // Measured in the background now, so the custom game dialog does not wait for it.
+        Field.calibrate();
+        showField();
+    }
+
+    /**
+     * Shows the current size of {@link Field} on {@link #buttonPanel}.
+     * If the size did not change the buttons stay on the panel, otherwise they are
+     * laid out again from {@link #buttons}, only the missing ones are created.
+     * Fields larger than {@link #BUTTON_ROWS} x {@link #BUTTON_COLS} are drawn on a scrollable canvas instead.
+     */
+    private void showField()
+    {
+        int rows = Field.getSizeX();
+        int cols = Field.getSizeY();
+        if (rows > BUTTON_ROWS || cols > BUTTON_COLS) {
+            JComponent canvas = view.useCanvas((x, y, secondary) -> {
+                if (secondary)
+                    mark(x, y);
+                else
+                    press(x, y);
+            });
+            boolean shown = scroll != null;
+            if (!shown)
+                scroll = new JScrollPane(canvas);
+            scroll.getViewport().setViewPosition(new Point());
+            if (shown && rows == shownRows && cols == shownCols)
+                return;
+            Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+            scroll.setPreferredSize(null);
+            Dimension size = scroll.getPreferredSize();
+            scroll.setPreferredSize(new Dimension(Math.min(size.width, screen.width * 4 / 5),
+                    Math.min(size.height, screen.height * 4 / 5)));
+            if (!shown) {
+                buttonPanel.removeAll();
+                buttonPanel.setLayout(new BorderLayout());
+                buttonPanel.add(scroll);
             }
+            shownRows = rows;
+            shownCols = cols;
+            layoutWindow(scroll.getPreferredSize());
+            return;
+        }
+        if (scroll != null || rows != shownRows || cols != shownCols) {
+            scroll = null;
+            growButtons(rows, cols);
+            buttonPanel.removeAll();
+            buttonPanel.setLayout(new GridLayout(rows, cols));
+            for (int i = 0; i < rows; i++)
+                for (int j = 0; j < cols; j++)
+                    buttonPanel.add(buttons[i][j]);
+            shownRows = rows;
+            shownCols = cols;
+            layoutWindow(new Dimension(cols * 45, rows * 45));
         }
+        view.setButtons(buttons);
+    }
+
+    /**
+     * Sizes the window around the field.
+     *
+     * @param field the size of the field in pixels
+     */
+    private void layoutWindow(Dimension field)
+    {
+        clockPanel.setPreferredSize(new Dimension(field.width, 50));
         clockPanel.validate();
         buttonPanel.validate();
-        app.setPreferredSize(new Dimension(Field.getSizeY() * 45 + app.getInsets().left + app.getInsets().right,
-                Field.getSizeX() * 45 + clockPanel.getHeight() + bar.getHeight() + app.getInsets().top + app.getInsets().bottom));
+        app.setPreferredSize(new Dimension(field.width + app.getInsets().left + app.getInsets().right,
+                field.height + clockPanel.getHeight() + bar.getHeight() + app.getInsets().top + app.getInsets().bottom));
         app.revalidate();
         app.pack();
         centerWindow();
     }
 
     /**
-     * Called when a button is pressed on the field.
+     * Makes {@link #buttons} at least rows x cols big, keeping the existing buttons.
      *
-     * @param e ActionEvent received on button press
+     * @param rows the amount of rows needed
+     * @param cols the amount of columns needed
+     */
+    private void growButtons(int rows, int cols)
+    {
+        int oldRows = buttons.length;
+        int oldCols = oldRows == 0 ? 0 : buttons[0].length;
+        if (rows <= oldRows && cols <= oldCols)
+            return;
+        var grown = new MatrixJButton[Math.max(rows, oldRows)][Math.max(cols, oldCols)];
+        for (int i = 0; i < grown.length; i++)
+            for (int j = 0; j < grown[i].length; j++)
+                grown[i][j] = i < oldRows && j < oldCols ? buttons[i][j] : createButton(i, j);
+        buttons = grown;
+    }
+
+    /**
+     * Creates the button of a tile with its listeners.
+     *
+     * @param i the row of the button
+     * @param j the column of the button
+     * @return the button
+     */
+    private MatrixJButton createButton(int i, int j)
+    {
+        MatrixJButton button = new MatrixJButton(i, j);
+        button.setFont(defFont);
+        button.setPreferredSize(new Dimension(45, 45));
+        button.setFocusable(false);
+        button.addActionListener(e -> press(i, j));
+        button.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e)
+            {
+                if (e.getButton() == MouseEvent.BUTTON3 && button.isEnabled())
+                    mark(i, j);
+            }
+        });
+        return button;
+    }
+
+    /**
+     * Cycles the mark of a hidden tile, called on a right-click on the field.
+     *
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     */
+    private void mark(int x, int y)
+    {
+        Tile tile = Field.getTileAt(x, y);
+        if (!clockRun || !tile.isHidden())
+            return;
+        if (sounds.isSelected())
+            playAudio(getClass().getResourceAsStream("/quasar6/main/sound/flag.wav"));
+        Field.setMark(x, y, (tile.getMark() + 1) % 3);
+        flagsLabel.setText(Integer.toString(Field.getFlagCount()));
+    }
+
+    /**
+     * Called when a tile is pressed on the field.
+     *
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
      */
-    private void onPress(ActionEvent e)
+    private void press(int x, int y)
     {
         if (!clockRun) {
             clockRun = true;
@@ -268,69 +416,56 @@ public class Main {
             playPause.setText("\u23F8");
             clockTick();
         }
-        MatrixJButton btn = (MatrixJButton)e.getSource();
-        if (btn.getIcon() != null)
-            return;
-        int x = btn.getRow();
-        int y = btn.getCol();
-        if (!Field.getTileAt(x, y).isHidden())
+        if (Field.getTileAt(x, y).getMark() != Tile.NONE || !Field.getTileAt(x, y).isHidden())
             return;
+        // A generated field has no mines before its first reveal, so the first press always gets here.
         if (!Field.getTileAt(x, y).isMine()) {
             if (sounds.isSelected())
                 playAudio(getClass().getResourceAsStream("/quasar6/main/sound/click.wav"));
-            if (Field.getTileAt(x, y).getRank() != 0) {
-                Field.getTileAt(x, y).setHidden(false);
-                btn.setBackground(revealedTileColor);
-                btn.setForeground(Field.getTileAt(x, y).getColor());
-                btn.setText(Integer.toString(Field.getTileAt(x, y).getRank()));
-            } else {
-                Field.revealTiles(x, y);
-                for (int i = 0; i < Field.getSizeX(); i++)
-                    for (int j = 0; j < Field.getSizeY(); j++)
-                        if (!Field.getTileAt(i, j).isHidden()) {
-                            if (buttons[i][j].getIcon() != null)
-                                if ("flag".equals(((ImageIcon)buttons[i][j].getIcon()).getDescription()))
-                                    buttons[i][j].setIcon(null);
-                            buttons[i][j].setBackground(revealedTileColor);
-                            if (Field.getTileAt(i, j).getRank() != 0) {
-                                buttons[i][j].setForeground(Field.getTileAt(i, j).getColor());
-                                buttons[i][j].setText(Integer.toString(Field.getTileAt(i, j).getRank()));
-                            }
-                        }
-            }
+            Field.revealTiles(x, y);
+            flagsLabel.setText(Integer.toString(Field.getFlagCount()));
         } else {
             if (sounds.isSelected())
                 playAudio(getClass().getResourceAsStream("/quasar6/main/sound/loose.wav"));
             clockRun = false;
+            pregenerate();
+            spectators.lost(x * Field.getSizeY() + y);
+            logGame(false, x * Field.getSizeY() + y);
             String correctFlags = Integer.toString(correctFlags());
             revealMines();
             setOsTheme();
             int restart = JOptionPane.showConfirmDialog(app, "You have successfully blown yourself up under " + timeScore
-                    + "\nCorrect flags: " + correctFlags + " out of " + flagsPlaced + "\nAnother game?", "Game Over", JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE);
+                    + "\nCorrect flags: " + correctFlags + " out of " + Field.getFlagCount() + "\nAnother game?", "Game Over", JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE);
             setMetalTheme();
-            if (restart != 0) {
+            if (restart != 0)
                 System.exit(0);
-            } else {
-                resetWidgets();
-                Field.generate(difficulty);
-            }
+            else
+                restart();
         }
         if (Field.isWinningState()) {
             if (sounds.isSelected())
                 playAudio(getClass().getResourceAsStream("/quasar6/main/sound/win.wav"));
             clockRun = false;
+            pregenerate();
+            spectators.won();
+            logGame(true, -1);
             String correctFlags = Integer.toString(correctFlags());
+            // Packed fields are too large for the 3BV analysis to be worth the wait.
+            String threeBV = "";
+            if (Field.getEngine() == Field.Engine.PLAIN) {
+                Analytics.Stats stats = Analytics.ofField();
+                threeBV = "\n3BV: " + stats.threeBV() + String.format(" (%.2f 3BV/s)", stats.perSecond(elapsedSeconds()));
+            }
             revealMines();
             setOsTheme();
-            int restart = JOptionPane.showConfirmDialog(app, "You win!\n" + "You have solved the " + difficulty
-                    + " difficulty under " + timeScore + "\nCorrect flags: " + correctFlags + " out of " + flagsPlaced +  "\nAnother game?", "Winner", JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE);
+            int restart = JOptionPane.showConfirmDialog(app, "You win!\n" + "You have solved the " + gameName()
+                    + " under " + timeScore + threeBV
+                    + "\nCorrect flags: " + correctFlags + " out of " + Field.getFlagCount() +  "\nAnother game?", "Winner", JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE);
             setMetalTheme();
-            if (restart != 0) {
+            if (restart != 0)
                 System.exit(0);
-            } else {
-                resetWidgets();
-                Field.generate(difficulty);
-            }
+            else
+                restart();
         }
     }
 
@@ -346,28 +481,341 @@ public class Main {
             case Field.BEGINNER -> {
                 clockRun = false;
                 resetWidgets();
-                removeButtons();
                 run(Field.BEGINNER);
             }
             case Field.INTERMEDIATE -> {
                 clockRun = false;
                 resetWidgets();
-                removeButtons();
                 run(Field.INTERMEDIATE);
             }
             case Field.EXPERT -> {
                 clockRun = false;
                 resetWidgets();
-                removeButtons();
                 run(Field.EXPERT);
             }
         }
     }
 
+    /**
+     * Called when the mode changed from the dropdown menu.
+     *
+     * @param kind the selected neighbourhood
+     */
+    private void onModeChange(Topology.Kind kind)
+    {
+        Field.setTopology(kind);
+        clockRun = false;
+        resetWidgets();
+        newGame();
+        showField();
+    }
+
+    /**
+     * Asks for the size and the mines of a custom game and starts it.
+     * The dialog shows which engine the board would use and how much memory and time it would take,
+     * a board which would not fit into the memory of the JVM is refused.
+     *
+     * @param e ActionEvent received on menu press
+     */
+    private void onCustomGame(ActionEvent e)
+    {
+        int[] last = custom != null ? custom : new int[]{Field.getSizeX(), Field.getSizeY(), Field.getMineCount()};
+        var rows = new JSpinner(new SpinnerNumberModel(last[0], 1, Field.MAX_SIDE, 1));
+        var cols = new JSpinner(new SpinnerNumberModel(last[1], 1, Field.MAX_SIDE, 1));
+        var minesModel = new SpinnerNumberModel(last[2], 1, Math.max(1, last[0] * last[1] - 1), 1);
+        var mines = new JSpinner(minesModel);
+        var preview = new JLabel();
+        Runnable update = () -> {
+            long tiles = (long) (int) rows.getValue() * (int) cols.getValue();
+            int most = (int) Math.max(1, Math.min(tiles - 1, Integer.MAX_VALUE));
+            minesModel.setMaximum(most);
+            if ((int) mines.getValue() > most)
+                mines.setValue(most);
+            preview.setText(describe((int) rows.getValue(), (int) cols.getValue(), (int) mines.getValue()));
+        };
+        rows.addChangeListener(c -> update.run());
+        cols.addChangeListener(c -> update.run());
+        mines.addChangeListener(c -> update.run());
+        update.run();
+        Field.calibrate().thenRun(() -> SwingUtilities.invokeLater(update));
+        var form = new JPanel(new GridLayout(0, 2, 8, 4));
+        form.add(new JLabel("Rows:"));
+        form.add(rows);
+        form.add(new JLabel("Columns:"));
+        form.add(cols);
+        form.add(new JLabel("Mines:"));
+        form.add(mines);
+        var dialog = new JPanel(new BorderLayout(0, 8));
+        dialog.add(form, BorderLayout.CENTER);
+        dialog.add(preview, BorderLayout.SOUTH);
+        while (true) {
+            setOsTheme();
+            int answer = JOptionPane.showConfirmDialog(app, dialog, "Custom game", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+            setMetalTheme();
+            if (answer != JOptionPane.OK_OPTION) {
+                selectDifficulty();
+                return;
+            }
+            int[] game = {(int) rows.getValue(), (int) cols.getValue(), (int) mines.getValue()};
+            try {
+                // The next board is built while the current one is played, so two have to fit.
+                if (2 * Field.estimate(game[0], game[1], game[2], Field.getTopologyKind()).bytes()
+                        + revealBytes(game[0], game[1], game[2]) > Runtime.getRuntime().maxMemory())
+                    throw new IllegalArgumentException("The board does not fit into the memory, start the game with a larger -Xmx.");
+            } catch (IllegalArgumentException exc) {
+                setOsTheme();
+                JOptionPane.showMessageDialog(app, exc.getMessage(), "Custom game", JOptionPane.ERROR_MESSAGE);
+                setMetalTheme();
+                continue;
+            }
+            clockRun = false;
+            resetWidgets();
+            custom = game;
+            newGame();
+            showField();
+            return;
+        }
+    }
+
+    /**
+     * The first reveal may open every free tile, so the copies of its cascade
+     * made by {@link Field} and by the spectator stream are counted for all of them.
+     *
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @return the memory taken for a while on the first reveal
+     */
+    private static long revealBytes(int rows, int cols, int mines)
+    {
+        return Field.estimate(rows, cols, mines, Field.getTopologyKind()).revealBytes()
+                + ((long) rows * cols - mines) * Spectators.REVEAL_BYTES;
+    }
+
+    /**
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @return the estimate of the board for the custom game dialog
+     */
+    private static String describe(int rows, int cols, int mines)
+    {
+        try {
+            Field.Estimate estimate = Field.estimate(rows, cols, mines, Field.getTopologyKind());
+            double megabytes = estimate.bytes() / (1024.0 * 1024.0);
+            double reveal = revealBytes(rows, cols, mines) / (1024.0 * 1024.0);
+            String time = Double.isNaN(estimate.millis()) ? "estimating\u2026" : String.format("up to about %.0f ms", Math.ceil(estimate.millis()));
+            return String.format("<html>%s engine, about %.1f MB of %d MB<br>First reveal in %s, taking up to %.1f MB more</html>",
+                    estimate.engine().getLabel(), megabytes, Runtime.getRuntime().maxMemory() >> 20, time, reveal);
+        } catch (IllegalArgumentException exc) {
+            return exc.getMessage();
+        }
+    }
+
+    /** Selects the menu item of the game being played. */
+    private static void selectDifficulty()
+    {
+        if (custom != null)
+            customGame.setSelected(true);
+        else if (Field.BEGINNER.equals(difficulty))
+            beginner.setSelected(true);
+        else if (Field.INTERMEDIATE.equals(difficulty))
+            intermediate.setSelected(true);
+        else
+            expert.setSelected(true);
+    }
+
+    /** Generates a field of the current difficulty or custom game. */
+    private static void newGame()
+    {
+        if (custom != null)
+            Field.customGenerate(custom[0], custom[1], custom[2]);
+        else
+            Field.generate(difficulty);
+    }
+
+    /** Starts building the next field of the current difficulty or custom game in the background. */
+    private static void pregenerate()
+    {
+        if (custom != null)
+            Field.pregenerate(custom[0], custom[1], custom[2]);
+        else
+            Field.pregenerate(difficulty);
+    }
+
+    /** @return the name of the current game for the win dialog */
+    private static String gameName()
+    {
+        if (custom != null)
+            return String.format("custom %dx%d game with %d mines", custom[0], custom[1], custom[2]);
+        return difficulty + " difficulty";
+    }
+
+    /**
+     * Asks for a board code and loads the board it describes.
+     *
+     * @param e ActionEvent received on menu press
+     */
+    private void onLoadBoard(ActionEvent e)
+    {
+        setOsTheme();
+        String code = JOptionPane.showInputDialog(app, "Board code:", "Load board", JOptionPane.PLAIN_MESSAGE);
+        setMetalTheme();
+        if (code == null || code.isBlank())
+            return;
+        try {
+            loadBoard(BoardCode.decode(code));
+        } catch (IllegalArgumentException exc) {
+            setOsTheme();
+            JOptionPane.showMessageDialog(app, "Invalid board code: " + exc.getMessage(), "Load board", JOptionPane.ERROR_MESSAGE);
+            setMetalTheme();
+        }
+    }
+
+    /**
+     * Copies the code of the current board to the clipboard and shows it.
+     * The mines are placed on the first reveal, so there is no board to copy before it.
+     *
+     * @param e ActionEvent received on menu press
+     */
+    private void onCopyCode(ActionEvent e)
+    {
+        if (!Field.isArmed()) {
+            setOsTheme();
+            JOptionPane.showMessageDialog(app, "The mines are placed on the first reveal, reveal a tile before copying the code.",
+                    "Copy board code", JOptionPane.INFORMATION_MESSAGE);
+            setMetalTheme();
+            return;
+        }
+        String code = Field.toCode().encode();
+        try {
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(code), null);
+        } catch (IllegalStateException exc) {
+            System.err.println(exc.getMessage());
+        }
+        setOsTheme();
+        JOptionPane.showInputDialog(app, "Board code:", "Copy board code", JOptionPane.PLAIN_MESSAGE, null, null, code);
+        setMetalTheme();
+    }
+
+    /**
+     * Asks for a file and records the spectator stream of the following games into it.
+     *
+     * @param e ActionEvent received on menu press
+     */
+    private void onRecord(ActionEvent e)
+    {
+        setOsTheme();
+        JFileChooser chooser = new JFileChooser();
+        int answer = chooser.showSaveDialog(app);
+        setMetalTheme();
+        if (answer != JFileChooser.APPROVE_OPTION)
+            return;
+        try {
+            spectators.subscribe(new BufferedOutputStream(new FileOutputStream(chooser.getSelectedFile())));
+        } catch (IOException exc) {
+            setOsTheme();
+            JOptionPane.showMessageDialog(app, "Cannot record: " + exc.getMessage(), "Record to file", JOptionPane.ERROR_MESSAGE);
+            setMetalTheme();
+        }
+    }
+
+    /**
+     * Asks for a file and appends the following finished games to it.
+     * The file can be queried with {@link GameArchive#main(String[])}.
+     *
+     * @param e ActionEvent received on menu press
+     */
+    private void onLogGames(ActionEvent e)
+    {
+        setOsTheme();
+        JFileChooser chooser = new JFileChooser();
+        int answer = chooser.showSaveDialog(app);
+        setMetalTheme();
+        if (answer != JFileChooser.APPROVE_OPTION)
+            return;
+        try {
+            var opened = new GameArchive.Recorder(chooser.getSelectedFile().toPath());
+            if (recorder != null) {
+                Field.removeListener(recorder);
+                recorder.close();
+            }
+            recorder = opened;
+            Field.addListener(recorder);
+        } catch (IOException | IllegalArgumentException exc) {
+            setOsTheme();
+            JOptionPane.showMessageDialog(app, "Cannot log games: " + exc.getMessage(), "Log games to file", JOptionPane.ERROR_MESSAGE);
+            setMetalTheme();
+        }
+    }
+
+    /**
+     * Appends the finished game to the archive if games are logged.
+     *
+     * @param won {@code true} if the game was won
+     * @param mine the flat index of the revealed mine of a lost game
+     */
+    private static void logGame(boolean won, int mine)
+    {
+        if (recorder == null)
+            return;
+        try {
+            if (won)
+                recorder.won();
+            else
+                recorder.lost(mine);
+        } catch (IOException exc) {
+            System.err.println(exc.getMessage());
+        }
+    }
+
+    /**
+     * Opens a local port for spectators and shows it.
+     *
+     * @param e ActionEvent received on menu press
+     */
+    private void onShare(ActionEvent e)
+    {
+        String message;
+        try {
+            message = "Spectators can connect to port " + spectators.listen(0) + " on this machine.";
+        } catch (IOException exc) {
+            message = "Cannot open a port: " + exc.getMessage();
+        }
+        setOsTheme();
+        JOptionPane.showMessageDialog(app, message, "Share on local port", JOptionPane.PLAIN_MESSAGE);
+        setMetalTheme();
+    }
+
+    /**
+     * Discards the current game and starts the given board.
+     *
+     * @param code the board to play
+     */
+    private void loadBoard(BoardCode code)
+    {
+        clockRun = false;
+        resetWidgets();
+        Field.load(code);
+        modes.get(code.getTopology()).setSelected(true);
+        showField();
+    }
+
+    /**
+     * Starts a new game of the current difficulty or custom game after a game is over.
+     * The board was already built by {@link #pregenerate()} while the dialog was open.
+     */
+    private void restart()
+    {
+        resetWidgets();
+        newGame();
+        showField();
+    }
+
     /**
      * This is called when the play/pause button is pressed.
-     * This method saves the state of the field into {@link #buttonFlagOnPause}
-     * and {@link #buttonTextOnPause}, and it also stops the clock.
+     * This method hides the field with {@link FieldView#setPaused(boolean)}
+     * and it also stops the clock.
      *
      * @param e ActionEvent received on button press
      */
@@ -375,44 +823,16 @@ public class Main {
     {
         JButton btn = (JButton)e.getSource();
         if (!clockRun) {
-            for (Component c : buttonPanel.getComponents()) {
-                MatrixJButton matrixBtn = (MatrixJButton)c;
-                if (!Field.getTileAt(matrixBtn.getRow(), matrixBtn.getCol()).isHidden()) {
-                    matrixBtn.setText(buttonTextOnPause.get(new AbstractMap.SimpleImmutableEntry<>(matrixBtn.getRow(), matrixBtn.getCol())));
-                    matrixBtn.setBackground(revealedTileColor);
-                }
-                matrixBtn.setIcon(buttonFlagOnPause.get(new AbstractMap.SimpleImmutableEntry<>(matrixBtn.getRow(), matrixBtn.getCol())));
-                for (var entry : buttonFlagOnPause.entrySet()) {
-                    if ("flag".equals(entry.getValue().getDescription()))
-                        buttons[entry.getKey().getKey()][entry.getKey().getValue()].setBackground(flagTileColor);
-                    else
-                        buttons[entry.getKey().getKey()][entry.getKey().getValue()].setBackground(qmarkColor);
-                }
-                matrixBtn.setEnabled(true);
-            }
+            view.setPaused(false);
             btn.setText("\u23F8");
             clockRun = true;
             clockTick();
+            spectators.resumed();
         } else {
-            for (Component c : buttonPanel.getComponents()) {
-                MatrixJButton matrixBtn = (MatrixJButton)c;
-                if (!Field.getTileAt(matrixBtn.getRow(), matrixBtn.getCol()).isHidden()) {
-                    var key = new AbstractMap.SimpleImmutableEntry<>(matrixBtn.getRow(), matrixBtn.getCol());
-                    buttonTextOnPause.put(key, matrixBtn.getText());
-                    matrixBtn.setText("");
-                    matrixBtn.setBackground(hiddenTileColor);
-                } else if (matrixBtn.getIcon() != null) {
-                    if ("flag".equals(((ImageIcon)matrixBtn.getIcon()).getDescription()) || "qmark".equals(((ImageIcon)matrixBtn.getIcon()).getDescription())) {
-                        var key = new AbstractMap.SimpleImmutableEntry<>(matrixBtn.getRow(), matrixBtn.getCol());
-                        buttonFlagOnPause.put(key, (ImageIcon)matrixBtn.getIcon());
-                        matrixBtn.setBackground(hiddenTileColor);
-                        matrixBtn.setIcon(null);
-                    }
-                }
-                matrixBtn.setEnabled(false);
-            }
+            view.setPaused(true);
             btn.setText("\u25B6");
             clockRun = false;
+            spectators.paused();
         }
     }
 
@@ -456,6 +876,13 @@ public class Main {
         }
     }
 
+    /** @return the seconds shown by {@link #timeScore} */
+    private static long elapsedSeconds()
+    {
+        String[] parts = timeScore.split(":");
+        return Long.parseLong(parts[0]) * 3600 + Long.parseLong(parts[1]) * 60 + Long.parseLong(parts[2]);
+    }
+
     /**
      * Plays audio from the specified InputStream.
      * The InputStream must be decorated as a BufferedInputStream,
@@ -480,75 +907,39 @@ public class Main {
         }
     }
 
-    /** Removes all buttons buttons from the field. */
-    private static void removeButtons()
-    {
-        buttons = null;
-        buttonPanel.removeAll();
-        app.revalidate();
-    }
-
     /**
      * Resets everything to default except the difficulty.
      * This method clears all caches.
      */
     private static void resetWidgets()
     {
-        buttonTextOnPause.clear();
-        buttonFlagOnPause.clear();
         clockRun = false;
         time = null;
         playPause.setText("\u25B6");
         playPause.setEnabled(false);
-        flagsPlaced = 0;
-        flagsLabel.setText(Integer.toString(flagsPlaced));
+        flagsLabel.setText("0");
         timeScore = "00:00:00";
-        for (int i = 0; i < Field.getSizeX(); i++)
-            for (int j = 0; j < Field.getSizeY(); j++) {
-                buttons[i][j].setText("");
-                buttons[i][j].setBackground(hiddenTileColor);
-                buttons[i][j].setForeground(Color.BLACK);
-                if (buttons[i][j].getIcon() != null)
-                    buttons[i][j].setIcon(null);
-            }
+        view.reset();
         clockLabel.setText("\u23F1 " + timeScore + " \u23F1");
     }
 
     /**
      * Counts how many flags have been placed correctly.
-     * The incorrectly placed ones will be highlighted with red.
      * @return The numbered of correctly placed flags.
      */
     private static int correctFlags()
     {
         int correctFlags = 0;
-        for (int i = 0; i < Field.getSizeX(); i++) {
-            for (int j = 0; j < Field.getSizeY(); j++) {
-                if (buttons[i][j].getIcon() != null) {
-                    if (Field.getTileAt(i, j).isMine()) {
-                        ImageIcon icon = (ImageIcon) buttons[i][j].getIcon();
-                        if ("flag".equals(icon.getDescription()))
-                            ++correctFlags;
-                    } else {
-                        buttons[i][j].setBackground(Color.RED);
-                        buttons[i][j].setIcon(null);
-                    }
-                }
-            }
-        }
+        for (int idx = 0; idx < Field.getSizeX() * Field.getSizeY(); idx++)
+            if (Field.getMark(idx) == Tile.FLAG && Field.isMine(idx))
+                ++correctFlags;
         return correctFlags;
     }
 
-    /** Reveals mines with the specified icon. */
-    private void revealMines()
+    /** Reveals the mines, the incorrectly placed marks will be highlighted with red. */
+    private static void revealMines()
     {
-        for (int i = 0; i < Field.getSizeX(); i++)
-            for (int j = 0; j < Field.getSizeY(); j++)
-                if (Field.getTileAt(i, j).isMine()) {
-                    buttons[i][j].setBackground(hiddenTileColor);
-                    buttons[i][j].setText("");
-                    buttons[i][j].setIcon(createIcon("/quasar6/main/images/mine.gif"));
-                }
+        view.showGameOver();
     }
 
     /** Sets the Look and Feel to the Swing default. */
@@ -7,6 +7,7 @@ import javax.swing.*;
  * This JButton stores its matrix position.
  * It is also immutable.
  */
+@SuppressWarnings("serial")
 public final class MatrixJButton extends JButton {
 
     private final int row;
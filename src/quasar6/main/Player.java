@@ -0,0 +1,48 @@
+package quasar6.main;
+
+/**
+ * A bot playing minesweeper.
+ * A new instance is created for every game, so implementations may keep per game state.
+ * The player only ever sees the {@link BoardView} of the game.
+ */
+@FunctionalInterface
+public interface Player {
+
+    /**
+     * An action of a player.
+     *
+     * @param flag {@code true} to toggle the flag of the tile, {@code false} to reveal it
+     * @param x the x coordinate of the tile
+     * @param y the y coordinate of the tile
+     */
+    record Move(boolean flag, int x, int y) {
+
+        /**
+         * @param x the x coordinate of the tile
+         * @param y the y coordinate of the tile
+         * @return a move revealing the tile
+         */
+        public static Move reveal(int x, int y)
+        {
+            return new Move(false, x, y);
+        }
+
+        /**
+         * @param x the x coordinate of the tile
+         * @param y the y coordinate of the tile
+         * @return a move toggling the flag on the tile
+         */
+        public static Move flag(int x, int y)
+        {
+            return new Move(true, x, y);
+        }
+    }
+
+    /**
+     * Decides the next move.
+     *
+     * @param view the current state of the game
+     * @return the move to make
+     */
+    Move nextMove(BoardView view);
+}
@@ -0,0 +1,616 @@
+package quasar6.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays seeded boards with random legal moves on every engine and checks the rules after every move.
+ * A naive model is the reference: it finds the neighbours of a tile from the shape of the neighbourhood
+ * instead of {@link Topology}, ranks the tiles by counting them and reveals with a plain flood fill. {@link Board} and {@link Field} are played move by move next to it,
+ * {@link Field} on small boards with its {@link Field.Engine#PLAIN} engine and on every
+ * {@value #LARGE_EVERY}th board with {@link Field.Engine#PACKED}, and the ranks of {@link Bitboard} are
+ * compared on square boards. After every move the ranks, the revealed tiles, the marks,
+ * the flag count and the win condition of the engine must match the model.
+ * Every board and its moves follow from its seed alone, so a failure names the seed to replay it with.
+ * The boards are checked on a fixed pool, the {@link Field} replays take turns since the field is global.
+ * The speed is only reported, unless a baseline measured on the same machine is given to {@link #main(String[])}.
+ */
+public final class RuleFuzzer {
+
+    /** Every this many boards is large enough for the packed engine. */
+    private static final int LARGE_EVERY = 128;
+
+    /** Moves of a small board and of a large one, large boards are checked fully after every move too. */
+    private static final int SMALL_MOVES = 200;
+    private static final int LARGE_MOVES = 24;
+
+    /** Mines per tile, one is picked for every board. */
+    private static final double[] DENSITIES = {0.02, 0.1, 0.2, 0.4, 0.7, 0.95};
+
+    /** Salt of the moves, so they do not repeat the draws of the board. */
+    private static final long MOVES = 0x9E3779B97F4A7C15L;
+
+    /**
+     * A board of the run.
+     *
+     * @param seed the seed of the board and its moves
+     * @param kind the neighbourhood
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @param mines the amount of mines
+     * @param safe the flat index of the first reveal, kept free of mines
+     * @param moves the most moves after the first reveal
+     */
+    private record Plan(long seed, Topology.Kind kind, int rows, int cols, int mines, int safe, int moves) {
+
+        private static Plan of(long seed)
+        {
+            // Random would draw the same first numbers for consecutive seeds, which would give every plan the same kind.
+            var rnd = new SplittableRandom(seed);
+            Topology.Kind kind = Topology.Kind.values()[rnd.nextInt(Topology.Kind.values().length)];
+            boolean large = Math.floorMod(seed, LARGE_EVERY) == LARGE_EVERY - 1;
+            int rows = large ? 256 + rnd.nextInt(64) : 1 + rnd.nextInt(40);
+            int cols = large ? 256 + rnd.nextInt(64) : 2 + rnd.nextInt(39);
+            int cells = rows * cols;
+            int mines = Math.max(1, Math.min(cells - 1, (int) (cells * DENSITIES[rnd.nextInt(DENSITIES.length)])));
+            return new Plan(seed, kind, rows, cols, mines, rnd.nextInt(cells), large ? LARGE_MOVES : SMALL_MOVES);
+        }
+    }
+
+    /** An engine played next to the model. The tiles are addressed by their flat index. */
+    private interface Subject {
+
+        /** @return the name of the engine in failures */
+        String name();
+
+        /**
+         * Reveals a hidden unmarked tile like the game does, a mine ends the game.
+         *
+         * @param idx the tile
+         * @return the tiles revealed, or {@code null} if the engine does not report them
+         */
+        int[] reveal(int idx);
+
+        /**
+         * @param idx a hidden tile
+         * @param mark the new mark
+         */
+        void mark(int idx, int mark);
+
+        /**
+         * @param idx the tile
+         * @return the rank, or -1 if the engine does not show the rank of a hidden tile
+         */
+        int rank(int idx);
+
+        boolean hidden(int idx);
+
+        int mark(int idx);
+
+        /** @return {@code false} if the engine only knows flags */
+        boolean questionMarks();
+
+        boolean won();
+
+        boolean lost();
+
+        /** @return the amount of flags, or -1 if the engine does not count them */
+        int flags();
+    }
+
+    /** The reference, built without any of the engines except the shared mine placement. */
+    private static final class Model {
+
+        private final Topology.Kind kind;
+        private final int rows;
+        private final int cols;
+        private final int cells;
+        private final int mines;
+        private final long[] bits;
+        private final byte[] ranks;
+        private final boolean[] revealed;
+        private final byte[] marks;
+        private final int[] near = new int[8];
+        private int revealedCount;
+        private int flags;
+        private boolean lost;
+
+        private Model(Plan plan)
+        {
+            kind = plan.kind();
+            rows = plan.rows();
+            cols = plan.cols();
+            cells = rows * cols;
+            mines = plan.mines();
+            bits = new long[(cells + 63) >>> 6];
+            Field.placeMines(mines, plan.seed(), Topology.of(kind, rows, cols), plan.safe(), bits, null);
+            ranks = new byte[cells];
+            revealed = new boolean[cells];
+            marks = new byte[cells];
+            for (int idx = 0; idx < cells; idx++) {
+                if (isMine(idx)) {
+                    ranks[idx] = 9;
+                    continue;
+                }
+                for (int k = neighbours(idx, near) - 1; k >= 0; k--)
+                    if (isMine(near[k]))
+                        ++ranks[idx];
+            }
+        }
+
+        private boolean isMine(int idx)
+        {
+            return (bits[idx >>> 6] & 1L << idx) != 0;
+        }
+
+        /**
+         * Finds the neighbours of a tile by trying every other tile up to two rows and columns away,
+         * wrapped around the edges of a toroidal board, each tile once.
+         *
+         * @param idx the tile
+         * @param out the neighbours
+         * @return the amount of neighbours
+         */
+        private int neighbours(int idx, int[] out)
+        {
+            int x = idx / cols;
+            int y = idx % cols;
+            int n = 0;
+            for (int dx = -2; dx <= 2; dx++)
+                for (int dy = -2; dy <= 2; dy++) {
+                    int nx = kind == Topology.Kind.TOROIDAL ? Math.floorMod(x + dx, rows) : x + dx;
+                    int ny = kind == Topology.Kind.TOROIDAL ? Math.floorMod(y + dy, cols) : y + dy;
+                    if (nx < 0 || ny < 0 || nx >= rows || ny >= cols || nx * cols + ny == idx || !adjacent(x, y, nx, ny))
+                        continue;
+                    int other = nx * cols + ny;
+                    boolean seen = false;
+                    for (int k = 0; k < n; k++)
+                        seen |= out[k] == other;
+                    if (!seen)
+                        out[n++] = other;
+                }
+            return n;
+        }
+
+        /** @return {@code true} if the two tiles touch in the neighbourhood of the board */
+        private boolean adjacent(int x, int y, int nx, int ny)
+        {
+            int dx = Math.abs(nx - x);
+            int dy = Math.abs(ny - y);
+            return switch (kind) {
+                case SQUARE -> Math.max(dx, dy) == 1;
+                case TOROIDAL -> Math.max(Math.min(dx, rows - dx), Math.min(dy, cols - dy)) == 1;
+                // Measured in half tiles, where odd rows start one half further right.
+                case HEXAGONAL -> {
+                    int half = Math.abs(2 * ny + (nx & 1) - 2 * y - (x & 1));
+                    yield dx == 0 ? half == 2 : dx == 1 && half == 1;
+                }
+                case KNIGHT -> dx * dy == 2;
+            };
+        }
+
+        private boolean won()
+        {
+            return revealedCount == cells - mines;
+        }
+
+        private int[] reveal(int idx)
+        {
+            if (isMine(idx)) {
+                lost = true;
+                return new int[]{idx};
+            }
+            int[] queue = new int[cells];
+            int head = 0;
+            int top = 0;
+            queue[top++] = idx;
+            revealed[idx] = true;
+            while (head < top) {
+                int cur = queue[head++];
+                if (marks[cur] == Tile.FLAG)
+                    --flags;
+                marks[cur] = Tile.NONE;
+                if (ranks[cur] != 0)
+                    continue;
+                for (int k = neighbours(cur, near) - 1; k >= 0; k--)
+                    if (!revealed[near[k]]) {
+                        revealed[near[k]] = true;
+                        queue[top++] = near[k];
+                    }
+            }
+            revealedCount += top;
+            return Arrays.copyOf(queue, top);
+        }
+
+        private void mark(int idx, int mark)
+        {
+            if (marks[idx] == Tile.FLAG)
+                --flags;
+            if (mark == Tile.FLAG)
+                ++flags;
+            marks[idx] = (byte) mark;
+        }
+
+        /**
+         * Finds a tile for a move, probing from a random tile.
+         *
+         * @param rnd the moves of the board
+         * @param unmarked {@code true} to skip marked tiles
+         * @param safe {@code true} to skip mines
+         * @return the flat index of a hidden tile, or -1 if there is none
+         */
+        private int pick(Random rnd, boolean unmarked, boolean safe)
+        {
+            int start = rnd.nextInt(cells);
+            for (int k = 0; k < cells; k++) {
+                int idx = start + k < cells ? start + k : start + k - cells;
+                if (!revealed[idx] && (!unmarked || marks[idx] == Tile.NONE) && (!safe || !isMine(idx)))
+                    return idx;
+            }
+            return -1;
+        }
+    }
+
+    /** {@link Board} behind the {@link Subject} interface. */
+    private static final class BoardSubject implements Subject {
+
+        private final Board board;
+        private final BoardView view;
+        private final int cols;
+
+        private BoardSubject(Plan plan)
+        {
+            board = new Board(plan.rows(), plan.cols(), plan.mines(), plan.seed(), plan.kind());
+            view = board.view();
+            cols = plan.cols();
+        }
+
+        @Override
+        public String name()
+        {
+            return "Board";
+        }
+
+        @Override
+        public int[] reveal(int idx)
+        {
+            board.reveal(idx / cols, idx % cols);
+            return null;
+        }
+
+        @Override
+        public void mark(int idx, int mark)
+        {
+            if ((mark == Tile.FLAG) != view.isFlagged(idx / cols, idx % cols))
+                board.toggleFlag(idx / cols, idx % cols);
+        }
+
+        @Override
+        public int rank(int idx)
+        {
+            return view.getRank(idx / cols, idx % cols);
+        }
+
+        @Override
+        public boolean hidden(int idx)
+        {
+            return view.isHidden(idx / cols, idx % cols);
+        }
+
+        @Override
+        public int mark(int idx)
+        {
+            return view.isFlagged(idx / cols, idx % cols) ? Tile.FLAG : Tile.NONE;
+        }
+
+        @Override
+        public boolean questionMarks()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean won()
+        {
+            return board.getState() == Board.State.WON;
+        }
+
+        @Override
+        public boolean lost()
+        {
+            return board.getState() == Board.State.LOST;
+        }
+
+        @Override
+        public int flags()
+        {
+            return -1;
+        }
+    }
+
+    /** The global {@link Field}, played like {@link Main} does. Only one can be played at a time. */
+    private static final class FieldSubject implements Subject {
+
+        private final int cols;
+        private boolean lost;
+
+        private FieldSubject(Plan plan)
+        {
+            Field.setTopology(plan.kind());
+            Field.customGenerate(plan.rows(), plan.cols(), plan.mines(), plan.seed());
+            cols = plan.cols();
+        }
+
+        @Override
+        public String name()
+        {
+            return "Field " + Field.getEngine().getLabel();
+        }
+
+        @Override
+        public int[] reveal(int idx)
+        {
+            if (Field.getTileAt(idx / cols, idx % cols).isMine()) {
+                lost = true;
+                return new int[]{idx};
+            }
+            return Field.revealTiles(idx / cols, idx % cols);
+        }
+
+        @Override
+        public void mark(int idx, int mark)
+        {
+            Field.setMark(idx / cols, idx % cols, mark);
+        }
+
+        @Override
+        public int rank(int idx)
+        {
+            return Field.getTileAt(idx / cols, idx % cols).getRank();
+        }
+
+        @Override
+        public boolean hidden(int idx)
+        {
+            return Field.getTileAt(idx / cols, idx % cols).isHidden();
+        }
+
+        @Override
+        public int mark(int idx)
+        {
+            return Field.getTileAt(idx / cols, idx % cols).getMark();
+        }
+
+        @Override
+        public boolean questionMarks()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean won()
+        {
+            return Field.isWinningState();
+        }
+
+        @Override
+        public boolean lost()
+        {
+            return lost;
+        }
+
+        @Override
+        public int flags()
+        {
+            return Field.getFlagCount();
+        }
+    }
+
+    private final long firstSeed;
+    private final int boards;
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+    private final LongAdder losses = new LongAdder();
+    private final LongAdder packed = new LongAdder();
+    private long wallNanos;
+
+    /**
+     * @param firstSeed the seed of the first board, the boards use consecutive seeds
+     * @param boards the amount of boards to check
+     */
+    public RuleFuzzer(long firstSeed, int boards)
+    {
+        this.firstSeed = firstSeed;
+        this.boards = boards;
+    }
+
+    /**
+     * Checks every board.
+     *
+     * @param threads the amount of boards checked at once
+     * @throws IllegalStateException if an engine breaks the rules, the message names the seed and the move
+     * @throws InterruptedException if interrupted while waiting for the boards
+     */
+    public void run(int threads) throws InterruptedException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int b = 0; b < boards; b++) {
+                long seed = firstSeed + b;
+                tasks.add(() -> {
+                    check(Plan.of(seed));
+                    return null;
+                });
+            }
+            for (Future<Void> future : pool.invokeAll(tasks))
+                future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        wallNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Checks one board on every engine.
+     *
+     * @param plan the board
+     */
+    private void check(Plan plan)
+    {
+        var model = new Model(plan);
+        if (plan.kind() == Topology.Kind.SQUARE
+                && !Arrays.equals(model.ranks, Bitboard.fromLayout(plan.rows(), plan.cols(), model.bits).ranks()))
+            throw new IllegalStateException("Seed " + plan.seed() + ": Bitboard ranks differ");
+        int made = play(plan, model, new BoardSubject(plan));
+        synchronized (Field.class) {
+            model = new Model(plan);
+            var field = new FieldSubject(plan);
+            if (Field.getEngine() == Field.Engine.PACKED)
+                packed.increment();
+            play(plan, model, field);
+            if (!Arrays.equals(model.bits, Field.toCode().mines()))
+                throw new IllegalStateException("Seed " + plan.seed() + ": " + field.name() + " code differs from its mines");
+        }
+        moves.add(made);
+        if (model.lost)
+            losses.increment();
+        else if (model.won())
+            wins.increment();
+    }
+
+    /**
+     * Plays the moves of a board on the model and an engine, comparing them after every move.
+     *
+     * @param plan the board
+     * @param model a fresh model of the board
+     * @param subject the engine
+     * @return the amount of moves made
+     */
+    private static int play(Plan plan, Model model, Subject subject)
+    {
+        var rnd = new Random(plan.seed() ^ MOVES);
+        compare(plan, -1, model, subject, subject.reveal(plan.safe()), model.reveal(plan.safe()));
+        int move = 0;
+        for (; move < plan.moves() && !model.lost && !model.won(); move++) {
+            int roll = rnd.nextInt(30);
+            // Mostly safe reveals, so the games run long enough to open most of the board.
+            int idx = roll < 9 ? -1 : model.pick(rnd, true, roll != 29);
+            if (idx < 0 && roll >= 9)
+                idx = model.pick(rnd, true, false);
+            if (idx >= 0) {
+                compare(plan, move, model, subject, subject.reveal(idx), model.reveal(idx));
+                continue;
+            }
+            // Marks cycle like a right-click, which is also the only move left when every hidden tile is marked.
+            idx = model.pick(rnd, false, false);
+            int mark = (model.marks[idx] + 1) % 3;
+            subject.mark(idx, mark);
+            model.mark(idx, mark);
+            compare(plan, move, model, subject, null, null);
+        }
+        return move + 1;
+    }
+
+    /**
+     * Checks the rules after a move.
+     *
+     * @param plan the board
+     * @param move the number of the move, -1 for the first reveal
+     * @param model the model after the move
+     * @param subject the engine after the move
+     * @param cascade the tiles revealed by the engine, or {@code null}
+     * @param expected the tiles revealed by the model, or {@code null}
+     */
+    private static void compare(Plan plan, int move, Model model, Subject subject, int[] cascade, int[] expected)
+    {
+        if (subject.lost() != model.lost)
+            fail(plan, move, subject, "lost is " + subject.lost());
+        if (model.lost)
+            return;
+        if (cascade != null) {
+            int[] sorted = cascade.clone();
+            Arrays.sort(sorted);
+            Arrays.sort(expected);
+            if (!Arrays.equals(sorted, expected))
+                fail(plan, move, subject, "revealed " + sorted.length + " tiles instead of " + expected.length);
+        }
+        for (int idx = 0; idx < model.cells; idx++) {
+            boolean hidden = subject.hidden(idx);
+            if (hidden == model.revealed[idx])
+                fail(plan, move, subject, "tile " + idx + " is " + (hidden ? "hidden" : "revealed"));
+            int rank = subject.rank(idx);
+            if (hidden ? rank >= 0 && rank != model.ranks[idx] : rank != model.ranks[idx])
+                fail(plan, move, subject, "tile " + idx + " is ranked " + rank + " instead of " + model.ranks[idx]);
+            if (!hidden && model.isMine(idx))
+                fail(plan, move, subject, "mine " + idx + " was revealed");
+            int mark = model.marks[idx] == Tile.QMARK && !subject.questionMarks() ? Tile.NONE : model.marks[idx];
+            if (subject.mark(idx) != mark)
+                fail(plan, move, subject, "tile " + idx + " is marked " + subject.mark(idx) + " instead of " + mark);
+        }
+        if (subject.flags() >= 0 && subject.flags() != model.flags)
+            fail(plan, move, subject, subject.flags() + " flags instead of " + model.flags);
+        if (subject.won() != model.won())
+            fail(plan, move, subject, "won is " + subject.won());
+    }
+
+    private static void fail(Plan plan, int move, Subject subject, String what)
+    {
+        throw new IllegalStateException(String.format(Locale.ROOT, "Seed %d (%s %dx%d, %d mines) move %d: %s %s",
+                plan.seed(), plan.kind().getLabel(), plan.rows(), plan.cols(), plan.mines(), move, subject.name(), what));
+    }
+
+    /** @return the boards checked per second by the last {@link #run(int)} */
+    public double boardsPerSecond()
+    {
+        return wallNanos == 0 ? 0 : (double) boards / wallNanos * 1e9;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format(Locale.ROOT, "boards=%d moves=%d won=%d lost=%d packed=%d",
+                boards, moves.sum(), wins.sum(), losses.sum(), packed.sum());
+    }
+
+    /**
+     * Checks the boards and fails if an engine breaks the rules, or if the run is slower than a given baseline.
+     * The speed depends on the machine, so the baseline is best taken from an earlier run on the same one.
+     *
+     * @param args optionally the amount of boards, the threads, the first seed and the baseline in boards per second,
+     *             by default 20000 boards on every core from seed 0 without a baseline
+     * @throws InterruptedException if interrupted while waiting for the boards
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int boards = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long firstSeed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        double baseline = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        var fuzzer = new RuleFuzzer(firstSeed, boards);
+        try {
+            fuzzer.run(threads);
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        System.out.println(fuzzer);
+        System.out.printf(Locale.ROOT, "%.0f boards/s on %d threads%s%n", fuzzer.boardsPerSecond(), threads,
+                baseline > 0 ? String.format(Locale.ROOT, ", baseline %.0f", baseline) : "");
+        if (fuzzer.boardsPerSecond() < baseline) {
+            System.err.println("Throughput is below the baseline!");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package quasar6.main;
+
+import java.util.Random;
+
+/**
+ * Baseline bot using single tile deductions.
+ * If a revealed number already touches as many flags as its rank, its other hidden
+ * neighbours are revealed. If it touches exactly as many hidden tiles as its rank, they are flagged.
+ * Otherwise it guesses a random hidden tile.
+ */
+public final class SimplePlayer implements Player {
+
+    private final Random rand;
+
+    /**
+     * @param seed the seed of the guesses
+     */
+    public SimplePlayer(long seed)
+    {
+        rand = new Random(seed);
+    }
+
+    @Override
+    public Move nextMove(BoardView view)
+    {
+        int rows = view.getRows();
+        int cols = view.getCols();
+        int[] offsets = view.getTopology().offsets();
+        int[] neighbours = view.getTopology().neighbours();
+        for (int idx = 0; idx < rows * cols; idx++) {
+            int rank = view.getRank(idx / cols, idx % cols);
+            if (rank <= 0)
+                continue;
+            int hidden = 0;
+            int flags = 0;
+            for (int k = offsets[idx]; k < offsets[idx + 1]; k++) {
+                int n = neighbours[k];
+                if (view.isFlagged(n / cols, n % cols))
+                    ++flags;
+                else if (view.isHidden(n / cols, n % cols))
+                    ++hidden;
+            }
+            if (hidden == 0 || flags != rank && flags + hidden != rank)
+                continue;
+            for (int k = offsets[idx]; k < offsets[idx + 1]; k++) {
+                int n = neighbours[k];
+                if (view.isHidden(n / cols, n % cols) && !view.isFlagged(n / cols, n % cols))
+                    return flags == rank ? Move.reveal(n / cols, n % cols) : Move.flag(n / cols, n % cols);
+            }
+        }
+        int hidden = 0;
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (view.isHidden(i, j) && !view.isFlagged(i, j))
+                    ++hidden;
+        int pick = rand.nextInt(hidden);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (view.isHidden(i, j) && !view.isFlagged(i, j) && pick-- == 0)
+                    return Move.reveal(i, j);
+        throw new IllegalStateException("No hidden tile left!");
+    }
+}
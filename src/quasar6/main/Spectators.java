@@ -0,0 +1,490 @@
+package quasar6.main;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Live stream of the changes of the current game for spectators.
+ * The changes of {@link Field} arrive as a {@link FieldListener} and the game state is
+ * published by the GUI, both from the EDT. They are appended to the frame being built
+ * and every {@link #FRAME_MILLIS} milliseconds the frame is handed to the subscribers.
+ * Every subscriber has a bounded queue and its own delivery thread. If a subscriber falls
+ * behind, its queue is replaced by a snapshot of the game, so the game never waits for it.
+ * New subscribers start with a snapshot followed by the live frames.
+ * The snapshots are read from {@link Field} on the delivery thread of the subscriber, outside the lock
+ * of the listener callbacks, so a spectator joining a large board does not stall the game.
+ * While nobody is subscribed nothing is recorded and the frame clock is stopped.
+ *
+ * A frame is a varint length followed by records. A record is a type byte and its data,
+ * all numbers are unsigned varints and tiles are flat indices ({@code x * cols + y}),
+ * delta encoded within a record. Every record carries absolute values, so receiving a change
+ * which is already part of a snapshot is harmless.
+ * <ul>
+ *     <li>{@link #SNAPSHOT}: rows, cols, mines, state, revealed count, (index delta, rank)*, marked count, (index delta, mark)*</li>
+ *     <li>{@link #REVEAL}: count, (index delta, rank)*</li>
+ *     <li>{@link #MARK}: index, mark (0 none, 1 flag, 2 question mark)</li>
+ *     <li>{@link #PAUSE}, {@link #RESUME}, {@link #WIN}: no data</li>
+ *     <li>{@link #LOSS}: index of the mine</li>
+ * </ul>
+ */
+public final class Spectators implements FieldListener, Closeable {
+
+    public static final int SNAPSHOT = 0;
+    public static final int REVEAL = 1;
+    public static final int MARK = 2;
+    public static final int PAUSE = 3;
+    public static final int RESUME = 4;
+    public static final int WIN = 5;
+    public static final int LOSS = 6;
+
+    public static final int PLAYING = 0;
+    public static final int PAUSED = 1;
+    public static final int WON = 2;
+    public static final int LOST = 3;
+
+    /**
+     * Memory a cascade may take per revealed tile while it is encoded and delivered:
+     * the sorted copy, the growing frame buffer and the frame.
+     */
+    public static final int REVEAL_BYTES = 16;
+
+    private static final int FRAME_MILLIS = 16;
+    private static final int QUEUE_FRAMES = 64;
+
+    /** Queued in place of a frame when the subscriber needs a snapshot first. */
+    private static final byte[] RESYNC = new byte[0];
+
+    /** Receives the frames of one subscriber on its own thread. */
+    @FunctionalInterface
+    public interface Sink {
+
+        /**
+         * @param frame a complete frame, it must not be modified
+         * @throws IOException if the sink is broken, it is unsubscribed then
+         */
+        void accept(byte[] frame) throws IOException;
+
+        /** Called once after the sink is unsubscribed. */
+        default void close() {}
+    }
+
+    /** A subscriber with its queue and delivery thread. */
+    private final class Subscriber implements Runnable {
+
+        private final Sink sink;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_FRAMES);
+        private final Thread thread;
+
+        private Subscriber(Sink sink)
+        {
+            this.sink = sink;
+            thread = new Thread(this, "spectator");
+            thread.setDaemon(true);
+        }
+
+        /** Offers a frame, a full queue is coalesced into a snapshot. */
+        private void offer(byte[] frame)
+        {
+            if (!queue.offer(frame)) {
+                queue.clear();
+                queue.offer(RESYNC);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    byte[] frame = queue.take();
+                    sink.accept(frame == RESYNC ? snapshot() : frame);
+                }
+            } catch (IOException | InterruptedException e) {
+                // the sink is gone or the stream is closed
+            } finally {
+                unsubscribe(this);
+                sink.close();
+            }
+        }
+    }
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /** Guards {@link #clock} and the changes of {@link #subscribers}. */
+    private final Object subscriptions = new Object();
+
+    /** The frame clock, {@code null} while nobody is subscribed. */
+    private ScheduledFuture<?> clock;
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "spectator-frames");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Records of the frame being built. */
+    private final Buffer pending = new Buffer();
+
+    /** State of the game, the tiles are read from {@link Field}. */
+    private volatile int state = PLAYING;
+
+    /**
+     * Subscribes a sink. It receives a snapshot first, then the live frames.
+     * The snapshot is taken after the subscriber is registered, so every change
+     * it misses arrives in the following frames.
+     *
+     * @param sink the consumer
+     */
+    public void subscribe(Sink sink)
+    {
+        var subscriber = new Subscriber(sink);
+        subscriber.queue.offer(RESYNC);
+        synchronized (subscriptions) {
+            subscribers.add(subscriber);
+            if (clock == null)
+                clock = ticker.scheduleAtFixedRate(this::flush, FRAME_MILLIS, FRAME_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        subscriber.thread.start();
+    }
+
+    /** Removes a subscriber and stops the frame clock after the last one. */
+    private void unsubscribe(Subscriber subscriber)
+    {
+        synchronized (subscriptions) {
+            subscribers.remove(subscriber);
+            if (!subscribers.isEmpty() || clock == null)
+                return;
+            clock.cancel(false);
+            clock = null;
+        }
+        synchronized (this) {
+            pending.reset();
+        }
+    }
+
+    /**
+     * Subscribes a stream, e.g. a file or a socket. The stream is closed when it breaks
+     * or the spectators are closed.
+     *
+     * @param out the stream to write the frames to
+     */
+    public void subscribe(OutputStream out)
+    {
+        subscribe(new Sink() {
+            @Override
+            public void accept(byte[] frame) throws IOException
+            {
+                out.write(frame);
+                out.flush();
+            }
+
+            @Override
+            public void close()
+            {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Accepts spectators on a local port. Every connection is subscribed as it arrives.
+     *
+     * @param port the port or 0 for any free port
+     * @return the port listened on
+     * @throws IOException if the port can not be opened
+     */
+    public int listen(int port) throws IOException
+    {
+        var server = new ServerSocket(port, 8, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> {
+            try (server) {
+                while (!ticker.isShutdown()) {
+                    Socket socket = server.accept();
+                    subscribe(new BufferedOutputStream(socket.getOutputStream()));
+                }
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+        }, "spectator-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server.getLocalPort();
+    }
+
+    /** Starts a new board, read from {@link Field}. */
+    @Override
+    public synchronized void fieldGenerated()
+    {
+        state = PLAYING;
+        if (subscribers.isEmpty())
+            return;
+        // The new board has nothing revealed or marked yet.
+        pending.reset();
+        pending.write(SNAPSHOT);
+        pending.writeVarInt(Field.getSizeX());
+        pending.writeVarInt(Field.getSizeY());
+        pending.writeVarInt(Field.getMineCount());
+        pending.write(state);
+        pending.writeVarInt(0);
+        pending.writeVarInt(0);
+    }
+
+    /**
+     * Publishes revealed tiles, their ranks are read from {@link Field}.
+     *
+     * @param cells the flat indices of the revealed tiles
+     */
+    @Override
+    public synchronized void tilesRevealed(int[] cells)
+    {
+        if (subscribers.isEmpty())
+            return;
+        int[] sorted = cells.clone();
+        Arrays.sort(sorted);
+        pending.write(REVEAL);
+        pending.writeVarInt(sorted.length);
+        int last = 0;
+        for (int idx : sorted) {
+            pending.writeVarInt(idx - last);
+            pending.write(Field.getRank(idx));
+            last = idx;
+        }
+    }
+
+    /**
+     * Publishes the mark of a hidden tile.
+     *
+     * @param idx the flat index of the tile
+     * @param mark 0 for none, 1 for a flag and 2 for a question mark
+     */
+    @Override
+    public synchronized void tileMarked(int idx, int mark)
+    {
+        if (subscribers.isEmpty())
+            return;
+        pending.write(MARK);
+        pending.writeVarInt(idx);
+        pending.write(mark);
+    }
+
+    /** Publishes that the game is paused. */
+    public synchronized void paused()
+    {
+        state = PAUSED;
+        if (!subscribers.isEmpty())
+            pending.write(PAUSE);
+    }
+
+    /** Publishes that the game is resumed. */
+    public synchronized void resumed()
+    {
+        state = PLAYING;
+        if (!subscribers.isEmpty())
+            pending.write(RESUME);
+    }
+
+    /** Publishes that the game is won. */
+    public synchronized void won()
+    {
+        state = WON;
+        if (!subscribers.isEmpty())
+            pending.write(WIN);
+    }
+
+    /**
+     * Publishes that the game is lost.
+     *
+     * @param idx the flat index of the mine that was hit
+     */
+    public synchronized void lost(int idx)
+    {
+        state = LOST;
+        if (subscribers.isEmpty())
+            return;
+        pending.write(LOSS);
+        pending.writeVarInt(idx);
+    }
+
+    /** Stops the frame clock and all subscribers. */
+    @Override
+    public void close()
+    {
+        ticker.shutdownNow();
+        for (Subscriber subscriber : subscribers)
+            subscriber.thread.interrupt();
+    }
+
+    /** Seals the current frame and hands it to the subscribers. */
+    private synchronized void flush()
+    {
+        if (pending.size() == 0)
+            return;
+        byte[] frame = pending.toFrame();
+        pending.reset();
+        for (Subscriber subscriber : subscribers)
+            subscriber.offer(frame);
+    }
+
+    /**
+     * Reads the game from {@link Field} while it is being played, so the snapshot may already hold
+     * some changes of the frames that follow it. The records carry absolute values, so those are harmless.
+     * If a new board is generated while it is read, the snapshot is torn or fails,
+     * but the snapshot record of the new board follows anyway.
+     *
+     * @return a frame holding the snapshot of the game
+     */
+    private byte[] snapshot()
+    {
+        int rows = Field.getSizeX();
+        int cols = Field.getSizeY();
+        var buffer = new Buffer();
+        buffer.write(SNAPSHOT);
+        buffer.writeVarInt(rows);
+        buffer.writeVarInt(cols);
+        buffer.writeVarInt(Field.getMineCount());
+        buffer.write(state);
+        var revealed = new Buffer();
+        var marked = new Buffer();
+        int revealedCount = 0;
+        int markedCount = 0;
+        try {
+            int lastRevealed = 0;
+            int lastMarked = 0;
+            for (int idx = 0; idx < rows * cols; idx++) {
+                if (!Field.isHidden(idx)) {
+                    revealed.writeVarInt(idx - lastRevealed);
+                    revealed.write(Field.getRank(idx));
+                    lastRevealed = idx;
+                    ++revealedCount;
+                } else if (Field.getMark(idx) != Tile.NONE) {
+                    marked.writeVarInt(idx - lastMarked);
+                    marked.write(Field.getMark(idx));
+                    lastMarked = idx;
+                    ++markedCount;
+                }
+            }
+        } catch (RuntimeException e) {
+            // a new board replaced the tiles, its own snapshot is on the way
+            revealed.reset();
+            marked.reset();
+            revealedCount = 0;
+            markedCount = 0;
+        }
+        buffer.writeVarInt(revealedCount);
+        revealed.writeTo(buffer);
+        buffer.writeVarInt(markedCount);
+        marked.writeTo(buffer);
+        return buffer.toFrame();
+    }
+
+    /** Growable byte buffer with varint support. */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private void writeTo(Buffer out)
+        {
+            out.write(buf, 0, count);
+        }
+
+        private void writeVarInt(int value)
+        {
+            while ((value & ~0x7F) != 0) {
+                write(value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        /** @return the records prefixed with their length */
+        private byte[] toFrame()
+        {
+            var frame = new Buffer();
+            frame.writeVarInt(count);
+            frame.write(buf, 0, count);
+            return frame.toByteArray();
+        }
+    }
+
+    /**
+     * Console spectator: connects to a local port and prints the received records.
+     *
+     * @param args the port of the game
+     * @throws IOException if the connection fails
+     */
+    public static void main(String[] args) throws IOException
+    {
+        try (var socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+             var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (true) {
+                int length = readVarInt(in);
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                print(new DataInputStream(new ByteArrayInputStream(frame)));
+            }
+        } catch (EOFException e) {
+            System.out.println("Game closed");
+        }
+    }
+
+    private static void print(DataInputStream in) throws IOException
+    {
+        while (in.available() > 0) {
+            int type = in.read();
+            switch (type) {
+                case SNAPSHOT -> {
+                    int rows = readVarInt(in);
+                    int cols = readVarInt(in);
+                    int mines = readVarInt(in);
+                    int state = in.read();
+                    int revealed = readVarInt(in);
+                    for (int i = 0; i < revealed; i++) {
+                        readVarInt(in);
+                        in.read();
+                    }
+                    int marked = readVarInt(in);
+                    for (int i = 0; i < marked; i++) {
+                        readVarInt(in);
+                        in.read();
+                    }
+                    System.out.println("Board " + rows + "x" + cols + " with " + mines + " mines, state " + state
+                            + ", " + revealed + " revealed, " + marked + " marked");
+                }
+                case REVEAL -> {
+                    int count = readVarInt(in);
+                    var line = new StringBuilder("Revealed");
+                    for (int i = 0, idx = 0; i < count; i++) {
+                        idx += readVarInt(in);
+                        line.append(' ').append(idx).append('=').append(in.read());
+                    }
+                    System.out.println(line);
+                }
+                case MARK -> System.out.println("Marked " + readVarInt(in) + " as " + in.read());
+                case PAUSE -> System.out.println("Paused");
+                case RESUME -> System.out.println("Resumed");
+                case WIN -> System.out.println("Won");
+                case LOSS -> System.out.println("Lost on " + readVarInt(in));
+                default -> throw new IOException("Unknown record " + type);
+            }
+        }
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed number");
+    }
+}
@@ -0,0 +1,286 @@
+package quasar6.main;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Headless terminal front end. It does not touch AWT, so it runs on servers and CI boxes.
+ * The board is drawn with cursor addressed ANSI escapes. After every key only the tiles
+ * whose look changed are redrawn, and the whole frame is written with a single write call.
+ * Boards larger than the terminal scroll with a viewport following the cursor.
+ * The screen is remembered per cell of the viewport, so scrolling also redraws only
+ * the cells whose look changed, and the memory does not grow with the board.
+ *
+ * Keys: arrows or wasd move, space or enter reveals, f flags, n starts a new game, q quits.
+ */
+public final class Terminal {
+
+    private static final String ESC = "\u001B[";
+
+    ////////////////////////////////Looks of a tile start////////////////////////////////
+    private static final byte HIDDEN = 10;
+    private static final byte FLAG = 11;
+    private static final byte MINE = 9;
+    private static final byte CURSOR = 0x40;
+    /** Never the look of a tile, forces a redraw. */
+    private static final byte DIRTY = -1;
+    ////////////////////////////////Looks of a tile end//////////////////////////////////
+
+    private static final String[] COLORS = {"", "34", "32", "31", "35", "33", "36", "90", "37", "91"};
+
+    private final String difficulty;
+    private final int[] custom;
+    private final OutputStream out = new FileOutputStream(FileDescriptor.out);
+    private final Frame frame = new Frame();
+
+    /** Look of every cell of the viewport as it is on the screen, row by row. */
+    private byte[] shown = new byte[0];
+    private String shownStatus = "";
+    private int cursorX;
+    private int cursorY;
+    private int viewX;
+    private int viewY;
+    private int viewRows;
+    private int viewCols;
+    private boolean over;
+    private String message = "";
+
+    /**
+     * @param difficulty the difficulty of the games or {@code null} for a custom size
+     * @param custom the rows, columns and mines of a custom game
+     */
+    private Terminal(String difficulty, int[] custom)
+    {
+        this.difficulty = difficulty;
+        this.custom = custom;
+    }
+
+    /** Growable frame, written to the terminal with one call. */
+    private static final class Frame extends ByteArrayOutputStream {
+
+        private Frame()
+        {
+            super(1 << 14);
+        }
+
+        private Frame append(String s)
+        {
+            byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+            write(bytes, 0, bytes.length);
+            return this;
+        }
+
+        private Frame append(int number)
+        {
+            return append(Integer.toString(number));
+        }
+
+        private Frame moveTo(int row, int col)
+        {
+            return append(ESC).append(row + 1).append(";").append(col + 1).append("H");
+        }
+    }
+
+    /** Starts a new game and redraws everything. */
+    private void newGame()
+    {
+        if (difficulty != null)
+            Field.generate(difficulty);
+        else
+            Field.customGenerate(custom[0], custom[1], custom[2]);
+        over = false;
+        message = "";
+        cursorX = Field.getSizeX() / 2;
+        cursorY = Field.getSizeY() / 2;
+        viewX = 0;
+        viewY = 0;
+        resize();
+    }
+
+    /** Reads the terminal size and invalidates the screen. */
+    private void resize()
+    {
+        int[] size = stty("size");
+        viewRows = Math.max(1, Math.min(Field.getSizeX(), size[0] - 2));
+        viewCols = Math.max(1, Math.min(Field.getSizeY(), size[1] / 2));
+        invalidate();
+        frame.append(ESC).append("2J");
+    }
+
+    private void invalidate()
+    {
+        if (shown.length != viewRows * viewCols)
+            shown = new byte[viewRows * viewCols];
+        Arrays.fill(shown, DIRTY);
+        shownStatus = "";
+    }
+
+    /**
+     * Handles one key.
+     *
+     * @param key the key read from the terminal
+     * @return {@code false} to quit
+     */
+    private boolean onKey(int key)
+    {
+        switch (key) {
+            case 'q', 3, -1 -> {
+                return false;
+            }
+            case 'w', 'k', 'A' -> cursorX = Math.max(0, cursorX - 1);
+            case 's', 'j', 'B' -> cursorX = Math.min(Field.getSizeX() - 1, cursorX + 1);
+            case 'd', 'l', 'C' -> cursorY = Math.min(Field.getSizeY() - 1, cursorY + 1);
+            case 'a', 'h', 'D' -> cursorY = Math.max(0, cursorY - 1);
+            case 'n' -> newGame();
+            case 'f' -> flag();
+            case ' ', '\r', '\n' -> reveal();
+            default -> {}
+        }
+        return true;
+    }
+
+    private void flag()
+    {
+        if (over)
+            return;
+        boolean flagged = Field.getTileAt(cursorX, cursorY).getMark() == Tile.FLAG;
+        Field.setMark(cursorX, cursorY, flagged ? Tile.NONE : Tile.FLAG);
+    }
+
+    /** Same rules as {@link Main}: flagged tiles can not be revealed. */
+    private void reveal()
+    {
+        Tile tile = Field.getTileAt(cursorX, cursorY);
+        if (over || tile.getMark() != Tile.NONE || !tile.isHidden())
+            return;
+        if (tile.isMine()) {
+            over = true;
+            message = "You have successfully blown yourself up! n: new game, q: quit";
+        } else {
+            Field.revealTiles(cursorX, cursorY);
+            if (Field.isWinningState()) {
+                over = true;
+                message = "You win! n: new game, q: quit";
+            }
+        }
+    }
+
+    /** @return the look of a tile */
+    private byte look(int x, int y)
+    {
+        Tile tile = Field.getTileAt(x, y);
+        byte look;
+        if (over && tile.isMine())
+            look = MINE;
+        else if (!tile.isHidden())
+            look = (byte) tile.getRank();
+        else
+            look = tile.getMark() == Tile.FLAG ? FLAG : HIDDEN;
+        return x == cursorX && y == cursorY ? (byte) (look | CURSOR) : look;
+    }
+
+    /** Redraws the changed tiles and the status line with one write. */
+    private void render() throws IOException
+    {
+        viewX = Math.max(Math.min(viewX, cursorX), cursorX - viewRows + 1);
+        viewY = Math.max(Math.min(viewY, cursorY), cursorY - viewCols + 1);
+        int lastRow = -1;
+        int lastCol = -1;
+        for (int i = 0; i < viewRows; i++)
+            for (int j = 0; j < viewCols; j++) {
+                byte look = look(viewX + i, viewY + j);
+                int idx = i * viewCols + j;
+                if (shown[idx] == look)
+                    continue;
+                shown[idx] = look;
+                if (i != lastRow || 2 * j != lastCol)
+                    frame.moveTo(i, 2 * j);
+                lastRow = i;
+                lastCol = 2 * j + 2;
+                drawTile(look);
+            }
+        String status = (difficulty != null ? difficulty : custom[0] + "x" + custom[1]) + "  mines: "
+                + (Field.getMineCount() - Field.getFlagCount()) + "  " + (cursorX + 1) + "_" + (cursorY + 1) + "  " + message;
+        if (!status.equals(shownStatus)) {
+            shownStatus = status;
+            frame.moveTo(viewRows + 1, 0).append(ESC).append("0m").append(status).append(ESC).append("K");
+        }
+        if (frame.size() > 0) {
+            frame.writeTo(out);
+            out.flush();
+            frame.reset();
+        }
+    }
+
+    private void drawTile(byte look)
+    {
+        frame.append(ESC).append((look & CURSOR) != 0 ? "0;7" : "0");
+        int plain = look & ~CURSOR;
+        String glyph = switch (plain) {
+            case HIDDEN -> "#";
+            case FLAG -> "F";
+            case MINE -> "*";
+            case 0 -> " ";
+            default -> Integer.toString(plain);
+        };
+        String color = plain == HIDDEN ? "90" : plain == FLAG ? "91" : plain <= MINE ? COLORS[plain] : "";
+        if (!color.isEmpty())
+            frame.append(";").append(color);
+        frame.append("m").append(glyph).append(ESC).append("0m ");
+    }
+
+    /**
+     * Runs an stty command on the controlling terminal.
+     *
+     * @param args the arguments of stty
+     * @return the numbers printed by stty, 24 rows and 80 columns if it fails
+     */
+    private static int[] stty(String args)
+    {
+        try {
+            Process p = new ProcessBuilder("sh", "-c", "stty " + args + " < /dev/tty")
+                    .redirectErrorStream(true).start();
+            String output = new String(p.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+            if (p.waitFor() == 0 && output.matches("\\d+ \\d+"))
+                return Arrays.stream(output.split(" ")).mapToInt(Integer::parseInt).toArray();
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new int[]{24, 80};
+    }
+
+    /** Reads a key, arrow escape sequences are turned into their last byte. */
+    private static int readKey(InputStream in) throws IOException
+    {
+        int key = in.read();
+        if (key == 27 && in.read() == '[')
+            return in.read();
+        return key;
+    }
+
+    /**
+     * @param args nothing for Beginner, a difficulty, or the rows, columns and mines of a custom game
+     * @throws IOException if the terminal is gone
+     */
+    public static void main(String[] args) throws IOException
+    {
+        var game = args.length >= 3
+                ? new Terminal(null, new int[]{Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2])})
+                : new Terminal(args.length > 0 ? args[0] : Field.BEGINNER, null);
+        stty("raw -echo");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stty("sane");
+            System.out.print(ESC + "0m" + ESC + "?25h" + ESC + "2J" + ESC + "H");
+            System.out.flush();
+        }));
+        game.frame.append(ESC).append("?25l");
+        game.newGame();
+        game.render();
+        while (game.onKey(readKey(System.in)))
+            game.render();
+        System.exit(0);
+    }
+}
@@ -7,6 +7,10 @@ import java.awt.Color;
  */
 public class Tile {
 
+    public static final int NONE = 0;
+    public static final int FLAG = 1;
+    public static final int QMARK = 2;
+
     /**
      * This determines the rank of the tile.
      * If {@code rank == 9} than the tile is a mine.
@@ -19,6 +23,12 @@ public class Tile {
      */
     private boolean hidden;
 
+    /**
+     * The mark the player put on this hidden tile.
+     * One of {@link #NONE}, {@link #FLAG} or {@link #QMARK}.
+     */
+    private int mark;
+
     /**
      * By default, all tiles are not mines and hidden.
      * The rank is calculated in {@link Field}.
@@ -64,6 +74,22 @@ public class Tile {
         this.hidden = hidden;
     }
 
+    /**
+     * @return the mark of this tile
+     */
+    public int getMark()
+    {
+        return mark;
+    }
+
+    /**
+     * @param mark the mark to set
+     */
+    public void setMark(int mark)
+    {
+        this.mark = mark;
+    }
+
     /**
      * Determines if this tile is a mine.
      *
@@ -71,7 +97,7 @@ public class Tile {
      */
     public boolean isMine()
     {
-        return this.rank == 9;
+        return getRank() == 9;
     }
 
     /**
@@ -79,7 +105,16 @@ public class Tile {
      */
     public Color getColor()
     {
-        return switch (this.rank) {
+        return colorOf(getRank());
+    }
+
+    /**
+     * @param rank the rank of a tile
+     * @return a color based on the rank
+     */
+    public static Color colorOf(int rank)
+    {
+        return switch (rank) {
             case 1 -> Color.BLUE;
             case 2 -> Color.GREEN;
             case 3 -> Color.RED;
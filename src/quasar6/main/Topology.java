@@ -0,0 +1,228 @@
+package quasar6.main;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Neighbourhood of the tiles of a board.
+ * The neighbours are precomputed into a compressed table: the neighbours of tile
+ * {@code idx = x * cols + y} are {@code neighbours()[offsets()[idx]] .. neighbours()[offsets()[idx + 1] - 1]},
+ * so the engine walks them as a flat range without any edge checks.
+ * The table takes about 36 bytes per tile, so for boards of the packed engine it is only built when it is
+ * first asked for, {@link #neighbours(int, int[])} computes the neighbours of a tile without it.
+ * Instances are immutable and shared, see {@link #of(Kind, int, int)}.
+ */
+public final class Topology {
+
+    /** The supported neighbourhoods. */
+    public enum Kind {
+        /** The classic 3x3 neighbourhood. */
+        SQUARE("Square"),
+        /** Six neighbours, odd rows are shifted right by half a tile. */
+        HEXAGONAL("Hexagonal"),
+        /** The 3x3 neighbourhood wrapping around the edges. */
+        TOROIDAL("Toroidal"),
+        /** The tiles a chess knight can reach. */
+        KNIGHT("Knight");
+
+        private final String label;
+
+        Kind(String label)
+        {
+            this.label = label;
+        }
+
+        /** @return the name shown in the menu */
+        public String getLabel()
+        {
+            return label;
+        }
+    }
+
+    private static final int[][] SQUARE = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+    private static final int[][] HEX_EVEN = {{-1, -1}, {-1, 0}, {0, -1}, {0, 1}, {1, -1}, {1, 0}};
+    private static final int[][] HEX_ODD = {{-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, 0}, {1, 1}};
+    private static final int[][] KNIGHT = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+
+    /** Boards with at least this many tiles build their table lazily, the same as {@link Field.Engine#PACKED}. */
+    private static final int TABLE_LIMIT = Field.PACKED_THRESHOLD;
+
+    /** Only a handful of sizes are played at once, the cache is dropped if it grows beyond this. */
+    private static final int CACHE_LIMIT = 32;
+    private static final Map<String, Topology> cache = new ConcurrentHashMap<>();
+
+    private final Kind kind;
+    private final int rows;
+    private final int cols;
+
+    /** Written before {@link #offsets}, which publishes the table. */
+    private int[] neighbours;
+    private volatile int[] offsets;
+
+    private Topology(Kind kind, int rows, int cols)
+    {
+        this.kind = kind;
+        this.rows = rows;
+        this.cols = cols;
+        if ((long) rows * cols < TABLE_LIMIT)
+            buildTable();
+    }
+
+    private synchronized void buildTable()
+    {
+        if (offsets != null)
+            return;
+        int cells = rows * cols;
+        int[] starts = new int[cells + 1];
+        int[] table = new int[cells * 8];
+        int size = 0;
+        for (int idx = 0; idx < cells; idx++) {
+            starts[idx] = size;
+            size += collect(idx, table, size);
+        }
+        starts[cells] = size;
+        neighbours = Arrays.copyOf(table, size);
+        offsets = starts;
+    }
+
+    /**
+     * Writes the neighbours of a tile, without the tile itself and without duplicates.
+     *
+     * @param idx the flat index of the tile
+     * @param out the array to write to
+     * @param from the first position to write
+     * @return the amount of neighbours written
+     */
+    private int collect(int idx, int[] out, int from)
+    {
+        int i = idx / cols;
+        int j = idx % cols;
+        int[][] deltas = switch (kind) {
+            case SQUARE, TOROIDAL -> SQUARE;
+            case HEXAGONAL -> (i & 1) == 0 ? HEX_EVEN : HEX_ODD;
+            case KNIGHT -> KNIGHT;
+        };
+        int size = from;
+        for (int[] d : deltas) {
+            int k = i + d[0];
+            int l = j + d[1];
+            if (kind == Kind.TOROIDAL) {
+                k = Math.floorMod(k, rows);
+                l = Math.floorMod(l, cols);
+            } else if (k < 0 || l < 0 || k >= rows || l >= cols)
+                continue;
+            int n = k * cols + l;
+            boolean known = n == idx;
+            for (int m = from; m < size && !known; m++)
+                known = out[m] == n;
+            if (!known)
+                out[size++] = n;
+        }
+        return size - from;
+    }
+
+    /**
+     * @param kind the neighbourhood
+     * @param rows the amount of rows
+     * @param cols the amount of columns
+     * @return the shared table of the given board
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public static Topology of(Kind kind, int rows, int cols)
+    {
+        if (kind == null || rows < 1 || cols < 1)
+            throw new IllegalArgumentException("Topology needs a kind and a positive size!");
+        String key = kind.ordinal() + "_" + rows + "_" + cols;
+        Topology topology = cache.get(key);
+        if (topology == null) {
+            if (cache.size() >= CACHE_LIMIT)
+                cache.clear();
+            topology = cache.computeIfAbsent(key, k -> new Topology(kind, rows, cols));
+        }
+        return topology;
+    }
+
+    /** @return the neighbourhood of this table */
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    /** @return the amount of rows */
+    public int getRows()
+    {
+        return rows;
+    }
+
+    /** @return the amount of columns */
+    public int getCols()
+    {
+        return cols;
+    }
+
+    /**
+     * The neighbours of tile {@code idx} start at {@code offsets()[idx]}
+     * and end before {@code offsets()[idx + 1]}. The array must not be modified.
+     * The table is built on the first call if the board is large.
+     *
+     * @return the start of the neighbours of every tile, one longer than the amount of tiles
+     */
+    int[] offsets()
+    {
+        int[] starts = offsets;
+        if (starts == null) {
+            buildTable();
+            starts = offsets;
+        }
+        return starts;
+    }
+
+    /**
+     * The array must not be modified.
+     *
+     * @return the flat indices of the neighbours of every tile
+     */
+    int[] neighbours()
+    {
+        offsets();
+        return neighbours;
+    }
+
+    /**
+     * Copies the neighbours of a tile, computing them if the table has not been built.
+     *
+     * @param idx the flat index of a tile
+     * @param out the array to write to, at least 8 long
+     * @return the amount of neighbours written
+     */
+    public int neighbours(int idx, int[] out)
+    {
+        int[] starts = offsets;
+        if (starts == null)
+            return collect(idx, out, 0);
+        int degree = starts[idx + 1] - starts[idx];
+        System.arraycopy(neighbours, starts[idx], out, 0, degree);
+        return degree;
+    }
+
+    /**
+     * @param idx the flat index of a tile
+     * @return the amount of neighbours of the tile
+     */
+    public int degree(int idx)
+    {
+        int[] starts = offsets();
+        return starts[idx + 1] - starts[idx];
+    }
+
+    /**
+     * @param idx the flat index of a tile
+     * @param k the number of the neighbour, less than {@link #degree(int)}
+     * @return the flat index of the neighbour
+     */
+    public int neighbour(int idx, int k)
+    {
+        return neighbours()[offsets[idx] + k];
+    }
+}
@@ -0,0 +1,275 @@
+package quasar6.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Plays several bots on the same seeded boards in parallel.
+ * Like on a generated {@link Field} the mines are placed on the first reveal,
+ * so bots opening on the same tile play the same board.
+ * Every game runs on a worker of a fixed pool, while the bots of the worker
+ * run on a daemon thread of that worker. A decision which exceeds the move budget, throws
+ * or makes too many moves forfeits the game, so a broken bot only loses its own games
+ * and never holds a worker of the pool. A decision which exceeds the budget may still be running,
+ * so the bot thread of the worker is abandoned and replaced, and a bot which runs out of time
+ * {@value #MAX_TIMEOUTS} times is disqualified, so it can not leave more threads spinning.
+ */
+public final class Tournament {
+
+    /** Timeouts after which a bot forfeits its remaining games. */
+    private static final int MAX_TIMEOUTS = 3;
+
+    /**
+     * Outcome of one bot.
+     *
+     * @param name the name of the bot
+     * @param games the amount of games played
+     * @param wins the amount of games won
+     * @param forfeits the amount of games lost by timeout, exception or illegal play
+     * @param decisions the amount of moves made
+     * @param decisionNanos the total time spent deciding
+     * @param disqualified {@code true} if the bot ran out of time too often
+     */
+    public record Result(String name, long games, long wins, long forfeits, long decisions, long decisionNanos,
+                         boolean disqualified) {
+
+        /** @return the ratio of won games */
+        public double winRate()
+        {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        /** @return the average time of a decision in microseconds */
+        public double microsPerDecision()
+        {
+            return decisions == 0 ? 0 : decisionNanos / 1e3 / decisions;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(Locale.ROOT, "%-12s games=%d win=%.2f%% forfeits=%d decisions=%d avg=%.1fus%s",
+                    name, games, winRate() * 100, forfeits, decisions, microsPerDecision(),
+                    disqualified ? " disqualified" : "");
+        }
+    }
+
+    /** Counters of one bot, updated by many games at once. */
+    private static final class Tally {
+
+        private final String name;
+        private final Supplier<Player> factory;
+        private final LongAdder games = new LongAdder();
+        private final LongAdder wins = new LongAdder();
+        private final LongAdder forfeits = new LongAdder();
+        private final LongAdder decisions = new LongAdder();
+        private final LongAdder decisionNanos = new LongAdder();
+        private final AtomicInteger timeouts = new AtomicInteger();
+
+        private Tally(String name, Supplier<Player> factory)
+        {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        private Result result()
+        {
+            return new Result(name, games.sum(), wins.sum(), forfeits.sum(), decisions.sum(), decisionNanos.sum(),
+                    disqualified());
+        }
+
+        private boolean disqualified()
+        {
+            return timeouts.get() >= MAX_TIMEOUTS;
+        }
+    }
+
+    private final String difficulty;
+    private final long firstSeed;
+    private final int games;
+    private final long moveBudgetNanos;
+    private final List<Tally> players = new ArrayList<>();
+
+    /** The bot thread of the current worker, replaced after a timeout. */
+    private final ThreadLocal<ExecutorService> botThread = new ThreadLocal<>();
+
+    /** Every bot thread of the run, shut down when the run ends. */
+    private final Queue<ExecutorService> botThreads = new ConcurrentLinkedQueue<>();
+    private long wallNanos;
+
+    /**
+     * @param difficulty the difficulty of the boards, see {@link Field#BEGINNER}
+     * @param firstSeed the seed of the first board, the boards use consecutive seeds
+     * @param games the amount of boards every bot plays
+     * @param moveBudgetMillis the time a bot has for one decision
+     * @throws IllegalArgumentException if the difficulty is not correct
+     */
+    public Tournament(String difficulty, long firstSeed, int games, long moveBudgetMillis)
+    {
+        Field.preset(difficulty);
+        this.difficulty = difficulty;
+        this.firstSeed = firstSeed;
+        this.games = games;
+        this.moveBudgetNanos = TimeUnit.MILLISECONDS.toNanos(moveBudgetMillis);
+    }
+
+    /**
+     * Adds a bot. The factory is called once per game.
+     *
+     * @param name the name of the bot in the results
+     * @param factory creates the bot of one game
+     * @return this tournament
+     */
+    public Tournament add(String name, Supplier<Player> factory)
+    {
+        players.add(new Tally(name, factory));
+        return this;
+    }
+
+    /**
+     * Plays every board with every bot.
+     *
+     * @param threads the amount of games played at once
+     * @return the results in the order the bots were added
+     * @throws InterruptedException if interrupted while waiting for the games
+     */
+    public List<Result> run(int threads) throws InterruptedException
+    {
+        int[] preset = Field.preset(difficulty);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int g = 0; g < games; g++) {
+                long seed = firstSeed + g;
+                for (Tally tally : players)
+                    tasks.add(() -> {
+                        play(tally, preset, seed);
+                        return null;
+                    });
+            }
+            pool.invokeAll(tasks);
+        } finally {
+            pool.shutdownNow();
+            for (ExecutorService bot; (bot = botThreads.poll()) != null; )
+                bot.shutdownNow();
+        }
+        wallNanos = System.nanoTime() - start;
+        List<Result> results = new ArrayList<>();
+        for (Tally tally : players)
+            results.add(tally.result());
+        return results;
+    }
+
+    /** @return the games finished per second by the last {@link #run(int)} */
+    public double gamesPerSecond()
+    {
+        return wallNanos == 0 ? 0 : (double) games * players.size() / wallNanos * 1e9;
+    }
+
+    /**
+     * Plays one game. The bot is created and asked on the bot thread of the worker.
+     * A disqualified bot forfeits without playing.
+     *
+     * @param tally the bot and its counters
+     * @param preset the rows, columns and mines of the board
+     * @param seed the seed of the board
+     */
+    private void play(Tally tally, int[] preset, long seed)
+    {
+        var board = new Board(preset[0], preset[1], preset[2], seed, Topology.Kind.SQUARE);
+        int moveLimit = 4 * preset[0] * preset[1];
+        boolean forfeit = tally.disqualified();
+        try {
+            Player player = forfeit ? null : ask(tally, tally.factory::get);
+            for (int moves = 0; player != null && board.getState() == Board.State.PLAYING; moves++) {
+                long start = System.nanoTime();
+                Player.Move move = ask(tally, () -> player.nextMove(board.view()));
+                tally.decisionNanos.add(System.nanoTime() - start);
+                tally.decisions.increment();
+                if (move == null || moves >= moveLimit) {
+                    forfeit = true;
+                    break;
+                }
+                board.apply(move);
+            }
+            forfeit |= player == null;
+        } catch (IndexOutOfBoundsException e) {
+            forfeit = true;
+        }
+        tally.games.increment();
+        if (forfeit)
+            tally.forfeits.increment();
+        else if (board.getState() == Board.State.WON)
+            tally.wins.increment();
+    }
+
+    /**
+     * Runs a call on the bot thread of the worker within the move budget.
+     * After a timeout the call may still be running, so the thread is abandoned
+     * and the next call of the worker gets a new one.
+     *
+     * @param tally the bot making the call
+     * @param call the call to make
+     * @return the result or {@code null} if the call failed or ran out of time
+     */
+    private <T> T ask(Tally tally, Callable<T> call)
+    {
+        ExecutorService bot = botThread.get();
+        if (bot == null) {
+            bot = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "bot-" + Thread.currentThread().getName());
+                t.setDaemon(true);
+                return t;
+            });
+            botThreads.add(bot);
+            botThread.set(bot);
+        }
+        Future<T> future = bot.submit(call);
+        try {
+            return future.get(moveBudgetNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            return null;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            bot.shutdownNow();
+            botThread.remove();
+            tally.timeouts.incrementAndGet();
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Pits the built-in bots against each other.
+     *
+     * @param args optionally the difficulty, the amount of games and the move budget in milliseconds
+     * @throws InterruptedException if interrupted while waiting for the games
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        String difficulty = args.length > 0 ? args[0] : Field.EXPERT;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        long budget = args.length > 2 ? Long.parseLong(args[2]) : 100;
+        var tournament = new Tournament(difficulty, 0, games, budget)
+                .add("Simple", () -> new SimplePlayer(0))
+                .add("Guesser", () -> {
+                    var rand = new Random(0);
+                    return view -> Player.Move.reveal(rand.nextInt(view.getRows()), rand.nextInt(view.getCols()));
+                });
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (Result result : tournament.run(threads))
+            System.out.println(result);
+        System.out.printf(Locale.ROOT, "%.0f games/s on %d threads%n", tournament.gamesPerSecond(), threads);
+    }
+}